@@ -0,0 +1,41 @@
+package com.kb.jwttest.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * 인증 hot path 벤치마크(발급, 검증, 재발급, 필터)를 스레드 수별로 실행한다.
+ * 처리량(thrpt), 지연 백분위(sample), gc 프로파일러의 할당량을 함께 기록한다.
+ * <p>
+ * {@code ./gradlew jmhAuth}
+ */
+public class AuthBenchmarkRunner {
+    private static final int[] THREADS = {1, 4, 16};
+    private static final String INCLUDE = "com\\.kb\\.jwttest\\.jwt\\.(JwtUtils|Reissue|JwtFilter)Benchmark";
+
+    public static void main(String[] args) throws RunnerException {
+        File resultDir = new File(args.length > 0 ? args[0] : "build/results/jmh");
+        resultDir.mkdirs();
+
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(INCLUDE)
+                    .mode(Mode.Throughput)
+                    .mode(Mode.SampleTime)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "auth-" + threads + "t.json").getPath())
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.kb.jwttest.benchmark;
+
+import com.kb.jwttest.jwt.JwtUtils;
+
+public class BenchmarkSupport {
+    public static final String SECRET = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    public static final long ACCESS_EXPIRED_MS = 36_000_000L;
+    public static final long REFRESH_EXPIRED_MS = 864_000_000L;
+
+    public static JwtUtils newJwtUtils() {
+        return new JwtUtils(SECRET, ACCESS_EXPIRED_MS, REFRESH_EXPIRED_MS, 0);
+    }
+}
@@ -0,0 +1,46 @@
+package com.kb.jwttest.benchmark;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * 벤치마크용 임베디드 Redis. 빈 포트에 띄우고 Lettuce 커넥션 팩토리를 만들어 준다.
+ */
+public class EmbeddedRedis implements AutoCloseable {
+    private final int port;
+    private final RedisServer redisServer;
+    private final LettuceConnectionFactory connectionFactory;
+
+    public EmbeddedRedis() throws IOException {
+        this.port = freePort();
+        this.redisServer = new RedisServer(port);
+        this.redisServer.start();
+
+        this.connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        this.connectionFactory.afterPropertiesSet();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public LettuceConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    @Override
+    public void close() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.kb.jwttest.benchmark;
+
+import com.kb.jwttest.JwtTestApplication;
+import com.kb.jwttest.jwt.IssuedToken;
+import com.kb.jwttest.jwt.JwtUtils;
+import com.kb.jwttest.redis.RefreshTokenStore;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 앱을 임베디드 Redis와 함께 띄우고, 동시 /reissue 호출 수를 단계별로 늘리면서 처리량과 p50/p99를 잰다.
+ * p99가 목표({@code -Dreissue.p99TargetMs}, 기본 50ms) 안에 드는 최대 동시성을 스레드 모드별로 비교한다.
+ * <p>
+ * {@code ./gradlew reissueLoad} / {@code ./gradlew reissueLoad -PvirtualThreads}
+ * <p>
+ * 부하 발생기와 서버가 같은 JVM에서 돌기 때문에 절대값보다 두 모드 사이의 차이를 보는 용도다.
+ */
+public class ReissueLoadDriver {
+    private static final int[] CONCURRENCY = {50, 100, 200, 400, 800, 1600};
+    private static final Duration WARMUP = Duration.ofSeconds(3);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(10);
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "platform";
+        File resultDir = new File(args.length > 1 ? args[1] : "build/results/load");
+        long p99TargetMs = Long.getLong("reissue.p99TargetMs", 50);
+        resultDir.mkdirs();
+
+        try (EmbeddedRedis redis = new EmbeddedRedis();
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(JwtTestApplication.class)
+                     .profiles("virtual".equals(mode) ? new String[]{"virtual"} : new String[0])
+                     .properties(
+                             "server.port=0",
+                             "spring.data.redis.port=" + redis.getPort(),
+                             "jwt.sweeper.enabled=false",
+                             "logging.level.sql=warn")
+                     .run();
+             PrintWriter report = new PrintWriter(new File(resultDir, "reissue-" + mode + ".csv"))) {
+
+            URI reissueUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/reissue");
+            JwtUtils jwtUtils = context.getBean(JwtUtils.class);
+            RefreshTokenStore store = context.getBean(RefreshTokenStore.class);
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .build();
+
+            report.println("mode,concurrency,requestsPerSecond,p50Ms,p99Ms,errors");
+            int maxConcurrency = 0;
+
+            for (int concurrency : CONCURRENCY) {
+                Step step = runStep(client, reissueUri, jwtUtils, store, concurrency);
+                report.printf("%s,%d,%.1f,%.2f,%.2f,%d%n", mode, concurrency, step.requestsPerSecond(), step.p50Ms(), step.p99Ms(), step.errors());
+                report.flush();
+                System.out.printf("[%s] concurrency=%d rps=%.1f p50=%.2fms p99=%.2fms errors=%d%n",
+                        mode, concurrency, step.requestsPerSecond(), step.p50Ms(), step.p99Ms(), step.errors());
+
+                if (step.p99Ms() > p99TargetMs)
+                    break;
+                maxConcurrency = concurrency;
+            }
+
+            System.out.printf("[%s] max concurrency with p99 <= %dms: %d%n", mode, p99TargetMs, maxConcurrency);
+        }
+    }
+
+    private static Step runStep(HttpClient client, URI reissueUri, JwtUtils jwtUtils, RefreshTokenStore store, int concurrency) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        long measureFrom = System.nanoTime() + WARMUP.toNanos();
+        long measureUntil = measureFrom + MEASUREMENT.toNanos();
+
+        List<Future<Client>> futures = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Client c = new Client(client, reissueUri, jwtUtils, store, "load-" + i);
+            futures.add(clients.submit(() -> c.run(measureFrom, measureUntil)));
+        }
+
+        long[] latencies = new long[0];
+        long errors = 0;
+        for (Future<Client> future : futures) {
+            Client c = future.get();
+            latencies = concat(latencies, Arrays.copyOf(c.latencies, c.count));
+            errors += c.errors;
+        }
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.SECONDS);
+
+        Arrays.sort(latencies);
+        return new Step(
+                latencies.length / (double) MEASUREMENT.toSeconds(),
+                percentileMs(latencies, 0.50),
+                percentileMs(latencies, 0.99),
+                errors);
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] merged = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, merged, a.length, b.length);
+        return merged;
+    }
+
+    private static double percentileMs(long[] sorted, double percentile) {
+        if (sorted.length == 0)
+            return Double.NaN;
+
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private record Step(double requestsPerSecond, double p50Ms, double p99Ms, long errors) {
+    }
+
+    /**
+     * refresh 토큰 하나를 들고 재발급을 반복한다. 응답으로 받은 새 refresh 토큰으로 다음 요청을 보낸다.
+     */
+    private static class Client {
+        private final HttpClient client;
+        private final URI reissueUri;
+        private final JwtUtils jwtUtils;
+        private final RefreshTokenStore store;
+        private final String username;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        Client(HttpClient client, URI reissueUri, JwtUtils jwtUtils, RefreshTokenStore store, String username) {
+            this.client = client;
+            this.reissueUri = reissueUri;
+            this.jwtUtils = jwtUtils;
+            this.store = store;
+            this.username = username;
+        }
+
+        Client run(long measureFrom, long measureUntil) throws InterruptedException {
+            String refreshToken = login();
+
+            while (true) {
+                long start = System.nanoTime();
+                if (start >= measureUntil)
+                    return this;
+
+                String next = reissue(refreshToken);
+                if (start >= measureFrom)
+                    record(System.nanoTime() - start);
+
+                if (next == null) {
+                    errors++;
+                    next = login();
+                }
+                refreshToken = next;
+            }
+        }
+
+        private String login() {
+            IssuedToken refresh = jwtUtils.issueRefreshToken(username, "ROLE_ADMIN");
+            store.save(refresh.value(), refresh.familyId(), username, refresh.expiration());
+            return refresh.value();
+        }
+
+        private String reissue(String refreshToken) throws InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder(reissueUri)
+                    .header("Cookie", "refresh=" + refreshToken)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200)
+                    return null;
+
+                return response.headers().allValues("Set-Cookie").stream()
+                        .filter(cookie -> cookie.startsWith("refresh="))
+                        .map(cookie -> cookie.substring("refresh=".length(), cookie.indexOf(';') < 0 ? cookie.length() : cookie.indexOf(';')))
+                        .findFirst()
+                        .orElse(null);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private void record(long latencyNanos) {
+            if (count == latencies.length)
+                latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = latencyNanos;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.kb.jwttest.entity;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * user_entity 테이블에 rows 건을 채워 두고 username 유니크 인덱스 유무에 따라 로그인 조회와 가입 처리량을 비교한다.
+ * <p>
+ * 인덱스가 없으면 조회 한 번이 테이블 전체를 읽어서 rows에 비례해 느려지고, 인덱스가 있으면 rows가 늘어도 거의 일정(O(log n))하다.
+ * 가입은 인덱스가 없을 때 기존 방식(exists 조회 후 insert), 있을 때 insert 한 번으로 처리한다.
+ * <p>
+ * {@code ./gradlew jmh -Pjmh.includes=UserTableBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserTableBenchmark {
+    private static final String URL = "jdbc:h2:mem:user-table-benchmark;DB_CLOSE_DELAY=-1";
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    @Param({"none", "unique"})
+    public String index;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private Connection setupConnection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        setupConnection = DriverManager.getConnection(URL, "sa", "");
+
+        try (Statement statement = setupConnection.createStatement()) {
+            statement.execute("drop table if exists user_entity");
+            statement.execute("create table user_entity (id bigint generated by default as identity primary key, " +
+                    "username varchar(255) not null, password varchar(255), role varchar(255))");
+            statement.execute("insert into user_entity (username, password, role) " +
+                    "select 'user-' || x, 'password', 'ROLE_ADMIN' from system_range(1, " + rows + ")");
+
+            if ("unique".equals(index))
+                statement.execute("alter table user_entity add constraint " + UserEntity.USERNAME_CONSTRAINT + " unique (username)");
+        }
+        sequence.set(rows);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = setupConnection.createStatement()) {
+            statement.execute("drop table user_entity");
+        }
+        setupConnection.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        Connection connection;
+        PreparedStatement findByUsername;
+        PreparedStatement existsByUsername;
+        PreparedStatement insert;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            connection = DriverManager.getConnection(URL, "sa", "");
+            findByUsername = connection.prepareStatement("select id, username, password, role from user_entity where username = ?");
+            existsByUsername = connection.prepareStatement("select 1 from user_entity where username = ? limit 1");
+            insert = connection.prepareStatement("insert into user_entity (username, password, role) values (?, 'password', 'ROLE_ADMIN')");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public boolean login(Session session) throws SQLException {
+        session.findByUsername.setString(1, "user-" + (ThreadLocalRandom.current().nextInt(rows) + 1));
+
+        try (ResultSet resultSet = session.findByUsername.executeQuery()) {
+            return resultSet.next();
+        }
+    }
+
+    @Benchmark
+    public int signup(Session session) throws SQLException {
+        String username = "user-" + sequence.incrementAndGet();
+
+        if ("unique".equals(index)) {
+            try {
+                session.insert.setString(1, username);
+                return session.insert.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                return 0;
+            }
+        }
+
+        session.existsByUsername.setString(1, username);
+        try (ResultSet resultSet = session.existsByUsername.executeQuery()) {
+            if (resultSet.next())
+                return 0;
+        }
+        session.insert.setString(1, username);
+        return session.insert.executeUpdate();
+    }
+}
@@ -0,0 +1,59 @@
+package com.kb.jwttest.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtFilter가 요청마다 더하는 access token 폐기 확인 비용. revokedUsers명이 폐기된 맵에서
+ * 폐기된 사용자(revoked)와 폐기되지 않은 사용자(active)의 토큰을 확인한다. username 해시 계산이 포함된다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AccessTokenRevocationBenchmark {
+    private static final long ACCESS_EXPIRED_MS = 36_000_000;
+    private static final int TOKENS = 1024;
+
+    @Param({"1000", "1000000"})
+    public int revokedUsers;
+
+    private LocalAccessTokenRevocations revocations;
+    private VerifiedToken[] revokedTokens;
+    private VerifiedToken[] activeTokens;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        revocations = new LocalAccessTokenRevocations(ACCESS_EXPIRED_MS, new SimpleMeterRegistry());
+        for (int i = 0; i < revokedUsers; i++)
+            revocations.revoke("user-" + i);
+
+        // 폐기 시각보다 1초 전에 발급된 토큰. 사용자를 돌려 가며 확인해서 캐시에 한 칸만 남아 있는 경우를 피한다.
+        long issuedAt = LocalAccessTokenRevocations.epochOf(System.currentTimeMillis()) - 1_000;
+        revokedTokens = new VerifiedToken[TOKENS];
+        activeTokens = new VerifiedToken[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            revokedTokens[i] = token("user-" + (long) i * revokedUsers / TOKENS, issuedAt);
+            activeTokens[i] = token("active-" + i, issuedAt);
+        }
+    }
+
+    @Benchmark
+    public boolean revoked() {
+        return revocations.isRevoked(revokedTokens[cursor++ & (TOKENS - 1)]);
+    }
+
+    @Benchmark
+    public boolean active() {
+        return revocations.isRevoked(activeTokens[cursor++ & (TOKENS - 1)]);
+    }
+
+    private static VerifiedToken token(String username, long issuedAt) {
+        return new VerifiedToken("access", username, "ROLE_USER", null, issuedAt, issuedAt + ACCESS_EXPIRED_MS);
+    }
+}
@@ -0,0 +1,48 @@
+package com.kb.jwttest.jwt;
+
+import com.kb.jwttest.benchmark.BenchmarkSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * access token 헤더가 있는 요청 하나가 JwtFilter를 통과하는 비용. mock 요청/응답 생성 비용도 포함된다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtFilterBenchmark {
+    private JwtFilter jwtFilter;
+    private String accessToken;
+
+    @Setup
+    public void setUp() {
+        JwtUtils jwtUtils = BenchmarkSupport.newJwtUtils();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        jwtFilter = new JwtFilter(jwtUtils, new LocalAccessTokenRevocations(36_000_000, meterRegistry), meterRegistry);
+        accessToken = jwtUtils.createAccessToken("산드로", "ROLE_ADMIN");
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("access", accessToken);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        try {
+            jwtFilter.doFilter(request, response, new MockFilterChain());
+            return response;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.kb.jwttest.jwt;
+
+import com.kb.jwttest.benchmark.BenchmarkSupport;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청마다 JwtParser를 만드는 방식, 공유하는 jjwt JwtParser, 스레드별 Mac을 쓰는 전용 검증기(JwtUtils 기본 경로)를 멀티 스레드 경합 상태에서 비교한다.
+ * <p>
+ * {@code ./gradlew jmh} (gc 프로파일러로 gc.alloc.rate.norm 확인)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtParserBenchmark {
+    private SecretKeySpec secretKey;
+    private JwtParser jwtParser;
+    private FixedClaimsTokenVerifier tokenVerifier;
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        secretKey = new SecretKeySpec(BenchmarkSupport.SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        jwtParser = Jwts.parser().verifyWith(secretKey).build();
+        tokenVerifier = new FixedClaimsTokenVerifier(secretKey);
+        jwtUtils = BenchmarkSupport.newJwtUtils();
+        token = jwtUtils.createAccessToken("산드로", "ROLE_ADMIN");
+    }
+
+    @Benchmark
+    public Claims parserPerCall() {
+        return Jwts.parser()
+                .verifyWith(secretKey)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    @Benchmark
+    public Claims sharedParser() {
+        return jwtParser.parseSignedClaims(token)
+                .getPayload();
+    }
+
+    @Benchmark
+    public VerifiedToken threadLocalMac() {
+        return tokenVerifier.verify(token);
+    }
+
+    @Benchmark
+    public VerifiedToken jwtUtils() {
+        return jwtUtils.verify(token);
+    }
+}
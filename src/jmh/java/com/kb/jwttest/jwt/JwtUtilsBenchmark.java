@@ -0,0 +1,41 @@
+package com.kb.jwttest.jwt;
+
+import com.kb.jwttest.benchmark.BenchmarkSupport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 토큰 발급과 검증(클레임 추출) 비용.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtUtilsBenchmark {
+    private JwtUtils jwtUtils;
+    private String accessToken;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = BenchmarkSupport.newJwtUtils();
+        accessToken = jwtUtils.createAccessToken("산드로", "ROLE_ADMIN");
+    }
+
+    @Benchmark
+    public String createAccessToken() {
+        return jwtUtils.createAccessToken("산드로", "ROLE_ADMIN");
+    }
+
+    @Benchmark
+    public String createRefreshToken() {
+        return jwtUtils.createRefreshToken("산드로", "ROLE_ADMIN");
+    }
+
+    @Benchmark
+    public VerifiedToken verify() {
+        return jwtUtils.verify(accessToken);
+    }
+}
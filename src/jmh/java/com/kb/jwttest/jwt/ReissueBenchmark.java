@@ -0,0 +1,69 @@
+package com.kb.jwttest.jwt;
+
+import com.kb.jwttest.benchmark.BenchmarkSupport;
+import com.kb.jwttest.benchmark.EmbeddedRedis;
+import com.kb.jwttest.dto.Tokens;
+import com.kb.jwttest.redis.RedisRefreshTokenStore;
+import com.kb.jwttest.redis.RefreshTokenStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 임베디드 Redis를 상대로 refresh token 재발급(검증 + 교체)을 반복한다.
+ * 스레드마다 다른 사용자의 토큰을 계속 교체하면서 진행한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReissueBenchmark {
+    private final AtomicInteger userSequence = new AtomicInteger();
+
+    private EmbeddedRedis embeddedRedis;
+    private JwtUtils jwtUtils;
+    private RefreshTokenStore refreshTokenStore;
+    private JwtService jwtService;
+
+    @Setup
+    public void setUp() throws IOException {
+        embeddedRedis = new EmbeddedRedis();
+
+        jwtUtils = BenchmarkSupport.newJwtUtils();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        refreshTokenStore = new RedisRefreshTokenStore(new StringRedisTemplate(embeddedRedis.getConnectionFactory()), 2_000, meterRegistry);
+        jwtService = new JwtService(jwtUtils, refreshTokenStore, new ReissueCoalescer(refreshTokenStore, 1_000, 2_000, 10_000, meterRegistry),
+                new LocalAccessTokenRevocations(36_000_000, meterRegistry), meterRegistry);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        embeddedRedis.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        String refreshToken;
+
+        @Setup
+        public void login(ReissueBenchmark benchmark) {
+            String username = "user-" + benchmark.userSequence.incrementAndGet();
+            IssuedToken issuedToken = benchmark.jwtUtils.issueRefreshToken(username, "ROLE_ADMIN");
+            benchmark.refreshTokenStore.save(issuedToken.value(), issuedToken.familyId(), username, issuedToken.expiration());
+            refreshToken = issuedToken.value();
+        }
+    }
+
+    @Benchmark
+    public Tokens reissue(Session session) {
+        Tokens tokens = jwtService.reissue(session.refreshToken);
+        session.refreshToken = tokens.refreshToken();
+        return tokens;
+    }
+}
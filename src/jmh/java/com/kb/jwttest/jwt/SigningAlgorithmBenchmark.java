@@ -0,0 +1,50 @@
+package com.kb.jwttest.jwt;
+
+import com.kb.jwttest.benchmark.BenchmarkSupport;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 서명 알고리즘별(HS256, ES256, Ed25519) 토큰 발급/검증 비용. JwtUtils가 실제로 쓰는 경로(HS256은 전용 인코더/검증기)를 그대로 잰다.
+ * <p>
+ * {@code ./gradlew jmh -Pjmh.includes=SigningAlgorithmBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SigningAlgorithmBenchmark {
+    @Param({"HS256", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        SigningKeyRing keyRing = null;
+        if (!"HS256".equals(algorithm)) {
+            KeyPair keyPair = SigningKeyRing.generateKeyPair(algorithm);
+            keyRing = new SigningKeyRing(algorithm, "bench", keyPair.getPrivate(), Map.of("bench", keyPair.getPublic()), null);
+        }
+
+        jwtUtils = new JwtUtils(BenchmarkSupport.SECRET, BenchmarkSupport.ACCESS_EXPIRED_MS, BenchmarkSupport.REFRESH_EXPIRED_MS, 0, keyRing);
+        token = jwtUtils.createAccessToken("산드로", "ROLE_ADMIN");
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtUtils.createAccessToken("산드로", "ROLE_ADMIN");
+    }
+
+    @Benchmark
+    public VerifiedToken verify() {
+        return jwtUtils.verify(token);
+    }
+}
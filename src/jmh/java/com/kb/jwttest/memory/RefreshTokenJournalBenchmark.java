@@ -0,0 +1,123 @@
+package com.kb.jwttest.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 저널을 켠 {@link InMemoryRefreshTokenStore}의 쓰기 처리량과 재시작 복구 시간.
+ * <ul>
+ *     <li>write : 로그인 한 건(save). persistence=off는 메모리만, async는 fsync를 기다리지 않고, group은 group commit fsync를 기다린다.
+ *     스냅샷도 설정값대로 돌기 때문에 처리량에는 스냅샷 비용이 포함된다.</li>
+ *     <li>recover : sessions개 세션을 스냅샷으로, 그 10%를 스냅샷 뒤의 저널로 남긴 디렉터리에서 저장소를 다시 만드는 시간.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RefreshTokenJournalBenchmark {
+    private static final long EXPIRATION_MS = 3_600_000;
+    private static final int SEGMENT_BYTES = 64 << 20;
+
+    @State(Scope.Benchmark)
+    public static class Writes {
+        @Param({"off", "async", "group"})
+        public String persistence;
+
+        private final AtomicLong sequence = new AtomicLong();
+        private Path directory;
+        private InMemoryRefreshTokenStore store;
+
+        @Setup
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("refresh-token-journal");
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            RefreshTokenJournal journal = "off".equals(persistence)
+                    ? null
+                    : new RefreshTokenJournal(directory, SEGMENT_BYTES, "group".equals(persistence), 256L << 20, Duration.ofSeconds(1), meterRegistry);
+            store = new InMemoryRefreshTokenStore(1_000_000, 2_000, Duration.ofSeconds(1), journal, meterRegistry);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            store.close();
+            deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recovery {
+        @Param({"5000000"})
+        public int sessions;
+
+        private Path directory;
+
+        @Setup
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("refresh-token-recovery");
+            long expiration = System.currentTimeMillis() + EXPIRATION_MS;
+
+            try (InMemoryRefreshTokenStore store = recoveringStore(directory)) {
+                save(store, 0, sessions, expiration);
+                store.snapshot();
+                save(store, sessions, sessions + sessions / 10, expiration);
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            deleteRecursively(directory);
+        }
+
+        private static void save(InMemoryRefreshTokenStore store, int from, int to, long expiration) {
+            IntStream.range(from, to).parallel()
+                    .forEach(i -> store.save("token-" + i, "family-" + i, "user-" + i, expiration));
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void write(Writes writes) {
+        long id = writes.sequence.incrementAndGet();
+        writes.store.save("token-" + id, "family-" + id, "user-" + id % 100_000, System.currentTimeMillis() + EXPIRATION_MS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public long recover(Recovery recovery) {
+        try (InMemoryRefreshTokenStore store = recoveringStore(recovery.directory)) {
+            return store.size();
+        }
+    }
+
+    /**
+     * 준비 단계에서 수백만 건을 빨리 넣기 위해 fsync를 기다리지 않고, 스냅샷은 직접 호출할 때만 쓴다.
+     */
+    private static InMemoryRefreshTokenStore recoveringStore(Path directory) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RefreshTokenJournal journal = new RefreshTokenJournal(directory, SEGMENT_BYTES, false, Long.MAX_VALUE, Duration.ofHours(1), meterRegistry);
+        return new InMemoryRefreshTokenStore(Integer.MAX_VALUE, 2_000, Duration.ofSeconds(1), journal, meterRegistry);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+                Files.deleteIfExists(file);
+        }
+    }
+}
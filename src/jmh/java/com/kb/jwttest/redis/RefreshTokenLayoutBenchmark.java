@@ -0,0 +1,159 @@
+package com.kb.jwttest.redis;
+
+import com.kb.jwttest.benchmark.BenchmarkSupport;
+import com.kb.jwttest.benchmark.EmbeddedRedis;
+import com.kb.jwttest.jwt.IssuedToken;
+import com.kb.jwttest.jwt.JwtUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisKeyValueAdapter;
+import org.springframework.data.redis.core.RedisKeyValueTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.mapping.RedisMappingContext;
+import org.springframework.data.redis.repository.support.RedisRepositoryFactory;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 이전 @RedisHash 구조와 {@link RedisRefreshTokenStore}의 string 키 구조를 비교한다.
+ * 처리량은 로그인(저장) -> 검증(존재 확인) -> 로그아웃(삭제) 한 세션 기준이고,
+ * 세션당 메모리는 Trial 시작 시 {@value #MEMORY_SAMPLE_SESSIONS}개 세션을 넣고 used_memory 증가량으로 계산해 출력한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RefreshTokenLayoutBenchmark {
+    private static final int MEMORY_SAMPLE_SESSIONS = 10_000;
+
+    @Param({"redisHash", "stringKey"})
+    public String layout;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private EmbeddedRedis embeddedRedis;
+    private StringRedisTemplate stringRedisTemplate;
+    private JwtUtils jwtUtils;
+    private SessionStore store;
+
+    @Setup
+    public void setUp() throws IOException {
+        embeddedRedis = new EmbeddedRedis();
+        stringRedisTemplate = new StringRedisTemplate(embeddedRedis.getConnectionFactory());
+        jwtUtils = BenchmarkSupport.newJwtUtils();
+        store = "redisHash".equals(layout) ? redisHashStore() : stringKeyStore();
+
+        reportMemoryPerSession();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        embeddedRedis.close();
+    }
+
+    @Benchmark
+    public boolean session() {
+        String username = "user-" + sequence.incrementAndGet();
+        IssuedToken refreshToken = jwtUtils.issueRefreshToken(username, "ROLE_ADMIN");
+
+        store.save(refreshToken.value(), refreshToken.familyId(), username, refreshToken.expiration());
+        store.exists(refreshToken.value());
+        return store.delete(refreshToken.value());
+    }
+
+    private void reportMemoryPerSession() {
+        flushAll();
+        long before = usedMemory();
+
+        for (int i = 0; i < MEMORY_SAMPLE_SESSIONS; i++) {
+            String username = "memory-" + i;
+            IssuedToken refreshToken = jwtUtils.issueRefreshToken(username, "ROLE_ADMIN");
+            store.save(refreshToken.value(), refreshToken.familyId(), username, refreshToken.expiration());
+        }
+
+        long bytesPerSession = (usedMemory() - before) / MEMORY_SAMPLE_SESSIONS;
+        System.out.printf("%n[%s] used_memory per session: %d bytes%n", layout, bytesPerSession);
+        flushAll();
+    }
+
+    private long usedMemory() {
+        Properties info = stringRedisTemplate.execute((RedisCallback<Properties>) connection -> connection.serverCommands().info("memory"));
+        return Long.parseLong(info.getProperty("used_memory"));
+    }
+
+    private void flushAll() {
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    private SessionStore stringKeyStore() {
+        RedisRefreshTokenStore redisStore = new RedisRefreshTokenStore(stringRedisTemplate, 2_000, new SimpleMeterRegistry());
+        return new SessionStore() {
+            @Override
+            public void save(String refreshToken, String familyId, String username, long expiration) {
+                redisStore.save(refreshToken, familyId, username, expiration);
+            }
+
+            @Override
+            public boolean exists(String refreshToken) {
+                return redisStore.exists(refreshToken);
+            }
+
+            @Override
+            public boolean delete(String refreshToken) {
+                return redisStore.delete(refreshToken);
+            }
+        };
+    }
+
+    /**
+     * Spring Data 리포지토리(@RedisHash + @Indexed)로 같은 동작을 하는 저장소.
+     */
+    private SessionStore redisHashStore() {
+        RedisTemplate<byte[], byte[]> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(embeddedRedis.getConnectionFactory());
+        redisTemplate.afterPropertiesSet();
+
+        RedisMappingContext mappingContext = new RedisMappingContext();
+        RedisKeyValueTemplate keyValueTemplate = new RedisKeyValueTemplate(new RedisKeyValueAdapter(redisTemplate, mappingContext), mappingContext);
+        RefreshTokenRepository repository = new RedisRepositoryFactory(keyValueTemplate).getRepository(RefreshTokenRepository.class);
+
+        return new SessionStore() {
+            @Override
+            public void save(String refreshToken, String familyId, String username, long expiration) {
+                repository.save(new RefreshToken(refreshToken, (expiration - System.currentTimeMillis()) / 1000));
+            }
+
+            @Override
+            public boolean exists(String refreshToken) {
+                return repository.existsByToken(refreshToken);
+            }
+
+            @Override
+            public boolean delete(String refreshToken) {
+                repository.deleteByToken(refreshToken);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * 두 구조가 공통으로 지원하는 로그인/검증/로그아웃만 비교한다. 운영 저장소 인터페이스가 바뀌어도 이 벤치마크는 그대로 둔다.
+     */
+    private interface SessionStore {
+        void save(String refreshToken, String familyId, String username, long expiration);
+
+        boolean exists(String refreshToken);
+
+        boolean delete(String refreshToken);
+    }
+}
@@ -0,0 +1,83 @@
+package com.kb.jwttest.security;
+
+import com.kb.jwttest.UserRepository;
+import com.kb.jwttest.entity.UserEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 적은 수의 계정으로 로그인을 반복하는(크리덴셜 스터핑과 비슷한) 트래픽에서 사용자 조회 캐시 유무에 따른 DB 조회 수를 비교한다.
+ * 조회 수를 세는 프록시 UserRepository를 쓰고, 반복(iteration)마다 로그인 한 번당 DB 조회 수를 출력한다.
+ * BCrypt cost는 4로 낮춰서 조회 비용이 드러나게 한다.
+ * <p>
+ * {@code ./gradlew jmh -Pjmh.includes=LoginLookupBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoginLookupBenchmark {
+    private static final int USERS = 100;
+
+    @Param({"uncached", "cached"})
+    public String lookup;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder logins = new LongAdder();
+    private DaoAuthenticationProvider authenticationProvider;
+
+    @Setup
+    public void setUp() {
+        AdaptiveBCryptPasswordEncoder passwordEncoder = new AdaptiveBCryptPasswordEncoder(4);
+        UserRepository userRepository = countingRepository(passwordEncoder.encode("1234"));
+
+        UserDetailsService userDetailsService = "cached".equals(lookup)
+                ? new CustomUserDetailsService(userRepository, new UserDetailsCache(new SimpleMeterRegistry(), 10_000, 60_000))
+                : username -> new CustomUserDetails(userRepository.findByUsername(username).orElseThrow());
+
+        authenticationProvider = new DaoAuthenticationProvider();
+        authenticationProvider.setUserDetailsService(userDetailsService);
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        System.out.printf("%n[%s] db queries per login: %.4f%n", lookup, queries.sum() / (double) Math.max(logins.sum(), 1));
+        queries.reset();
+        logins.reset();
+    }
+
+    @Benchmark
+    public Authentication login() {
+        String username = "user-" + ThreadLocalRandom.current().nextInt(USERS);
+        logins.increment();
+        return authenticationProvider.authenticate(new UsernamePasswordAuthenticationToken(username, "1234"));
+    }
+
+    private UserRepository countingRepository(String encodedPassword) {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(), new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("findByUsername"))
+                        throw new UnsupportedOperationException(method.getName());
+
+                    queries.increment();
+                    return Optional.of(UserEntity.builder()
+                            .username((String) args[0])
+                            .password(encodedPassword)
+                            .build());
+                });
+    }
+}
@@ -2,11 +2,18 @@ package com.kb.jwttest;
 
 import com.kb.jwttest.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
     boolean existsByUsername(String userName);
 
     Optional<UserEntity> findByUsername(String username);
+
+    @Query("select u.username from UserEntity u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
 }
@@ -1,29 +1,49 @@
 package com.kb.jwttest.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kb.jwttest.dto.RevocationTarget;
 import com.kb.jwttest.dto.Tokens;
+import com.kb.jwttest.dto.UserImportFormat;
 import com.kb.jwttest.dto.UserInfoResponse;
 import com.kb.jwttest.dto.UserJoinCommand;
 import com.kb.jwttest.jwt.HttpResponseUtil;
 import com.kb.jwttest.jwt.JwtService;
 import com.kb.jwttest.jwt.JwtUtils;
+import com.kb.jwttest.redis.RefreshTokenSession;
 import com.kb.jwttest.security.SecurityContextUtils;
+import com.kb.jwttest.service.BulkRevocationService;
 import com.kb.jwttest.service.JoinService;
+import com.kb.jwttest.service.UserImportService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RequiredArgsConstructor
 @RestController
 public class Controller {
     private final JoinService joinService;
     private final JwtService jwtService;
+    private final BulkRevocationService bulkRevocationService;
+    private final UserImportService userImportService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/")
     public Map<String, Object> main() {
@@ -34,7 +54,7 @@ public class Controller {
     }
 
     @PostMapping("/join")
-    public UserInfoResponse join(@RequestBody UserJoinCommand command) {
+    public CompletableFuture<UserInfoResponse> join(@RequestBody UserJoinCommand command) {
         return joinService.join(command);
     }
 
@@ -43,6 +63,57 @@ public class Controller {
         return "admin Controller";
     }
 
+    @GetMapping("/admin/users/{username}/sessions")
+    public List<RefreshTokenSession> sessions(@PathVariable String username) {
+        return jwtService.getSessions(username);
+    }
+
+    @DeleteMapping("/admin/users/{username}/sessions")
+    public Map<String, Object> revokeSessions(@PathVariable String username) {
+        return Map.of("revoked", jwtService.logoutAll(username));
+    }
+
+    /**
+     * 본문의 username(또는 토큰 id)을 한 줄씩 읽어 폐기하고, 배치마다 진행 상황을 NDJSON 한 줄로 내보낸다.
+     */
+    @PostMapping("/admin/revocations")
+    public void revoke(@RequestParam(defaultValue = "USERNAME") RevocationTarget type,
+                       @RequestParam(required = false) Integer batchSize,
+                       HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        PrintWriter writer = response.getWriter();
+
+        bulkRevocationService.revoke(request.getReader(), type, batchSize, progress -> {
+            try {
+                writer.println(objectMapper.writeValueAsString(progress));
+                writer.flush();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * CSV(username,password[,role]) 또는 NDJSON 본문으로 사용자를 일괄 가입시키고, 배치마다 진행 상황을 NDJSON 한 줄로 내보낸다.
+     */
+    @PostMapping("/admin/users/import")
+    public void importUsers(@RequestParam(defaultValue = "CSV") UserImportFormat format,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        PrintWriter writer = response.getWriter();
+
+        userImportService.importUsers(request.getReader(), format, progress -> {
+            try {
+                writer.println(objectMapper.writeValueAsString(progress));
+                writer.flush();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
     @PostMapping("/login")
     public String login() {
         // 로그인 처리
@@ -60,4 +131,14 @@ public class Controller {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    /**
+     * 비밀번호 해시 대기열이 가득 찬 경우
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> hashingRejected() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("server is busy");
+    }
 }
@@ -0,0 +1,32 @@
+package com.kb.jwttest.controller;
+
+import com.kb.jwttest.jwt.SigningKeyRing;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 토큰 검증용 공개키(JWKS). 다른 서비스는 이 키로 access token을 직접 검증한다. HS256 모드에서는 빈 목록을 내려준다.
+ */
+@RequiredArgsConstructor
+@RestController
+public class JwksController {
+    private final ObjectProvider<SigningKeyRing> signingKeyRing;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        SigningKeyRing keyRing = signingKeyRing.getIfAvailable();
+        List<Map<String, String>> keys = keyRing != null ? keyRing.jwks() : List.of();
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePublic())
+                .body(Map.of("keys", keys));
+    }
+}
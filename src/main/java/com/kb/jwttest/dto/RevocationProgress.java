@@ -0,0 +1,10 @@
+package com.kb.jwttest.dto;
+
+public record RevocationProgress(
+        long processed,
+        long revoked,
+        long elapsedMs,
+        long perSecond,
+        boolean done
+) {
+}
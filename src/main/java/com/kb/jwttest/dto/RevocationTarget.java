@@ -0,0 +1,6 @@
+package com.kb.jwttest.dto;
+
+public enum RevocationTarget {
+    USERNAME,
+    TOKEN_ID
+}
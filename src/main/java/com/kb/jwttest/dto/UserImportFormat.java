@@ -0,0 +1,6 @@
+package com.kb.jwttest.dto;
+
+public enum UserImportFormat {
+    CSV,
+    NDJSON
+}
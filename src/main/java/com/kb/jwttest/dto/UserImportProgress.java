@@ -0,0 +1,11 @@
+package com.kb.jwttest.dto;
+
+public record UserImportProgress(
+        long processed,
+        long imported,
+        long skipped,
+        long elapsedMs,
+        long perSecond,
+        boolean done
+) {
+}
@@ -0,0 +1,11 @@
+package com.kb.jwttest.dto;
+
+/**
+ * 일괄 가입 한 줄. role이 비어 있으면 기본 권한으로 가입한다.
+ */
+public record UserImportRow(
+        String username,
+        String password,
+        String role
+) {
+}
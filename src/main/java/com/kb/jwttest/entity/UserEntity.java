@@ -1,10 +1,14 @@
 package com.kb.jwttest.entity;
 
 import io.micrometer.common.util.StringUtils;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
@@ -13,10 +17,17 @@ import lombok.NoArgsConstructor;
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = UserEntity.USERNAME_CONSTRAINT, columnNames = "username"))
 public class UserEntity {
+    public static final String USERNAME_CONSTRAINT = "uk_user_entity_username";
+
+
+    // IDENTITY는 insert마다 id를 받아와야 해서 JDBC 배치가 꺼진다. 시퀀스에서 allocationSize만큼 미리 받아 쓴다(pooled).
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_entity_seq")
+    @SequenceGenerator(name = "user_entity_seq", sequenceName = "user_entity_seq", allocationSize = 100)
     private Long id;
+    @Column(nullable = false)
     private String username;
     private String password;
     private String role;
@@ -27,4 +38,8 @@ public class UserEntity {
         this.password = password;
         this.role = StringUtils.isNotEmpty(role) ? role : "ROLE_ADMIN";
     }
+
+    public void changePassword(String encodedPassword) {
+        this.password = encodedPassword;
+    }
 }
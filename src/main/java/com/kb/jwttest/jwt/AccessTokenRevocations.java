@@ -0,0 +1,23 @@
+package com.kb.jwttest.jwt;
+
+import java.util.List;
+
+/**
+ * 사용자별 revoked-before 시각으로 access token을 폐기한다. iat가 그 시각보다 이른 access token은 만료 전이라도 거절된다.
+ * 확인은 노드 로컬 {@link RevokedBeforeMap}만 보므로 요청마다 네트워크를 타지 않는다.
+ * <p>
+ * 토큰 하나가 아니라 사용자 단위라서, 한 기기에서 로그아웃해도 다른 기기의 access token이 거절된다.
+ * 다른 기기는 refresh token이 살아 있으면 재발급받아 계속 쓴다.
+ */
+public interface AccessTokenRevocations {
+    /**
+     * 지금까지 발급된 사용자들의 access token을 모두 폐기한다.
+     */
+    void revoke(List<String> usernames);
+
+    default void revoke(String username) {
+        revoke(List.of(username));
+    }
+
+    boolean isRevoked(VerifiedToken token);
+}
@@ -29,8 +29,8 @@ public class CustomLogoutFilter extends GenericFilterBean {
 
         try {
             String refreshToken = JwtUtils.getRefreshToken(req);
-            jwtService.validateRefreshToken(refreshToken);
-            jwtService.logout(refreshToken);
+            VerifiedToken token = jwtService.validateRefreshToken(refreshToken);
+            jwtService.logout(refreshToken, token.username());
 
             Cookie cookie = new Cookie("refresh", null);
             cookie.setMaxAge(0);
@@ -0,0 +1,243 @@
+package com.kb.jwttest.jwt;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * 클레임 구성이 고정된(category, username, role, [fid], iat, exp) HS256 토큰 전용 인코더.
+ * <p>
+ * jjwt 빌더처럼 클레임 Map, Date, JSON 문자열을 만들지 않고 스레드마다 재사용하는 바이트 버퍼에 헤더/페이로드 JSON을 바로 쓰고,
+ * 같은 버퍼 안에서 Base64URL 인코딩과 서명(스레드별로 초기화해 둔 {@link Mac})을 끝낸다. 결과 문자열 하나만 새로 만든다.
+ * <p>
+ * 출력은 jjwt(jackson) 0.12가 만드는 토큰과 바이트 단위로 같다. 제어 문자, 짝이 맞지 않는 서로게이트, null/빈 값처럼
+ * 직렬화 결과가 달라질 수 있는 입력은 처리하지 않고 null을 반환하므로 호출한 쪽에서 jjwt 빌더로 만든다.
+ */
+class FixedClaimsTokenEncoder {
+    static final String ALGORITHM = "HmacSHA256";
+    static final int SIGNATURE_LENGTH = 32;
+    // {"alg":"HS256"}
+    private static final byte[] HEADER = Base64.getUrlEncoder().withoutPadding()
+            .encode("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.US_ASCII));
+    private static final byte[] CATEGORY = ascii("{\"category\":\"");
+    private static final byte[] USERNAME = ascii("\",\"username\":\"");
+    private static final byte[] ROLE = ascii("\",\"role\":\"");
+    private static final byte[] FAMILY_ID = ascii("\",\"fid\":\"");
+    private static final byte[] ISSUED_AT = ascii("\",\"iat\":");
+    private static final byte[] EXPIRATION = ascii(",\"exp\":");
+    static final byte[] BASE64_URL = ascii("ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_");
+
+    private final SecretKeySpec secretKey;
+    private final ThreadLocal<Buffers> buffers;
+
+    FixedClaimsTokenEncoder(SecretKeySpec secretKey) {
+        this.secretKey = secretKey;
+        this.buffers = ThreadLocal.withInitial(this::newBuffers);
+    }
+
+    /**
+     * @return 토큰. 이 인코더로 만들 수 없는 입력이면 null
+     */
+    String encode(String category, String username, String role, long issuedAtSeconds, long expirationSeconds) {
+        return encode(category, username, role, null, issuedAtSeconds, expirationSeconds);
+    }
+
+    /**
+     * @param familyId null이면 fid 클레임을 넣지 않는다(jjwt도 null 클레임은 뺀다).
+     * @return 토큰. 이 인코더로 만들 수 없는 입력이면 null
+     */
+    String encode(String category, String username, String role, String familyId, long issuedAtSeconds, long expirationSeconds) {
+        if (!encodable(category) || !encodable(username) || !encodable(role) || (familyId != null && !encodable(familyId)))
+            return null;
+
+        Buffers b = buffers.get();
+        int familyIdLength = familyId != null ? FAMILY_ID.length + familyId.length() : 0;
+        byte[] json = b.json(64 + 4 * (category.length() + username.length() + role.length() + familyIdLength) + 2 * 20);
+
+        int jsonLength = 0;
+        jsonLength = put(json, jsonLength, CATEGORY);
+        jsonLength = putEscaped(json, jsonLength, category);
+        jsonLength = put(json, jsonLength, USERNAME);
+        jsonLength = putEscaped(json, jsonLength, username);
+        jsonLength = put(json, jsonLength, ROLE);
+        jsonLength = putEscaped(json, jsonLength, role);
+        if (familyId != null) {
+            jsonLength = put(json, jsonLength, FAMILY_ID);
+            jsonLength = putEscaped(json, jsonLength, familyId);
+        }
+        jsonLength = put(json, jsonLength, ISSUED_AT);
+        jsonLength = putLong(json, jsonLength, issuedAtSeconds);
+        jsonLength = put(json, jsonLength, EXPIRATION);
+        jsonLength = putLong(json, jsonLength, expirationSeconds);
+        json[jsonLength++] = '}';
+
+        byte[] out = b.out(HEADER.length + 1 + base64Length(jsonLength) + 1 + base64Length(SIGNATURE_LENGTH));
+
+        int length = put(out, 0, HEADER);
+        out[length++] = '.';
+        length = putBase64(out, length, json, jsonLength);
+
+        try {
+            b.mac.update(out, 0, length);
+            b.mac.doFinal(b.signature, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+
+        out[length++] = '.';
+        length = putBase64(out, length, b.signature, SIGNATURE_LENGTH);
+
+        return new String(out, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * secretKey로 초기화한 HmacSHA256 Mac. doFinal 후에는 같은 키로 자동으로 리셋되므로 스레드마다 하나씩 두고 재사용한다.
+     */
+    static Mac newMac(SecretKeySpec secretKey) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(secretKey);
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Buffers newBuffers() {
+        return new Buffers(newMac(secretKey));
+    }
+
+    /**
+     * Jackson과 똑같이 직렬화된다고 확신할 수 있는 문자열인지. 제어 문자와 짝 없는 서로게이트는 제외한다.
+     * jjwt는 빈 값의 클레임을 빼 버리므로 빈 문자열도 제외한다.
+     */
+    private static boolean encodable(String value) {
+        if (value == null || value.isEmpty())
+            return false;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20)
+                return false;
+            if (Character.isHighSurrogate(c)) {
+                if (i + 1 >= value.length() || !Character.isLowSurrogate(value.charAt(i + 1)))
+                    return false;
+                i++;
+            } else if (Character.isLowSurrogate(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int put(byte[] target, int offset, byte[] source) {
+        System.arraycopy(source, 0, target, offset, source.length);
+        return offset + source.length;
+    }
+
+    /**
+     * JSON 문자열 본문을 UTF-8로 쓴다. 큰따옴표와 역슬래시만 이스케이프한다(Jackson 기본 설정과 같음).
+     */
+    private static int putEscaped(byte[] target, int offset, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                target[offset++] = '\\';
+                target[offset++] = (byte) c;
+            } else if (c < 0x80) {
+                target[offset++] = (byte) c;
+            } else if (c < 0x800) {
+                target[offset++] = (byte) (0xC0 | (c >> 6));
+                target[offset++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                target[offset++] = (byte) (0xF0 | (codePoint >> 18));
+                target[offset++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                target[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                target[offset++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                target[offset++] = (byte) (0xE0 | (c >> 12));
+                target[offset++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                target[offset++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return offset;
+    }
+
+    private static int putLong(byte[] target, int offset, long value) {
+        if (value < 0) {
+            target[offset++] = '-';
+            value = -value;
+        }
+
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10)
+            digits++;
+
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            target[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+
+    static int putBase64(byte[] target, int offset, byte[] source, int length) {
+        int i = 0;
+        for (; i + 3 <= length; i += 3) {
+            int bits = (source[i] & 0xFF) << 16 | (source[i + 1] & 0xFF) << 8 | (source[i + 2] & 0xFF);
+            target[offset++] = BASE64_URL[(bits >>> 18) & 0x3F];
+            target[offset++] = BASE64_URL[(bits >>> 12) & 0x3F];
+            target[offset++] = BASE64_URL[(bits >>> 6) & 0x3F];
+            target[offset++] = BASE64_URL[bits & 0x3F];
+        }
+
+        int remaining = length - i;
+        if (remaining == 1) {
+            int bits = (source[i] & 0xFF) << 16;
+            target[offset++] = BASE64_URL[(bits >>> 18) & 0x3F];
+            target[offset++] = BASE64_URL[(bits >>> 12) & 0x3F];
+        } else if (remaining == 2) {
+            int bits = (source[i] & 0xFF) << 16 | (source[i + 1] & 0xFF) << 8;
+            target[offset++] = BASE64_URL[(bits >>> 18) & 0x3F];
+            target[offset++] = BASE64_URL[(bits >>> 12) & 0x3F];
+            target[offset++] = BASE64_URL[(bits >>> 6) & 0x3F];
+        }
+        return offset;
+    }
+
+    private static int base64Length(int length) {
+        return (length * 4 + 2) / 3;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static class Buffers {
+        final Mac mac;
+        final byte[] signature = new byte[SIGNATURE_LENGTH];
+        byte[] json = new byte[256];
+        byte[] out = new byte[512];
+
+        Buffers(Mac mac) {
+            this.mac = mac;
+        }
+
+        byte[] json(int capacity) {
+            if (json.length < capacity)
+                json = new byte[Math.max(capacity, json.length * 2)];
+            return json;
+        }
+
+        byte[] out(int capacity) {
+            if (out.length < capacity)
+                out = new byte[Math.max(capacity, out.length * 2)];
+            return out;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.kb.jwttest.jwt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * {@link FixedClaimsTokenEncoder}가 만드는 형식({"alg":"HS256"} 헤더, 고정 클레임)의 토큰 전용 검증기.
+ * <p>
+ * jjwt는 검증할 때마다 JCA에서 Mac을 찾아 새로 만들고 키로 초기화한다. 여기서는 스레드마다 초기화해 둔 Mac을 재사용하고,
+ * 계산한 서명을 Base64URL로 인코딩해 토큰의 서명 부분과 상수 시간으로 비교한다(비교 과정에서 할당 없음).
+ * <p>
+ * 헤더가 다르거나, 서명이 맞지 않거나, 클레임 구성이 다르면 null을 반환한다. 호출한 쪽에서 jjwt로 다시 검증해서 같은 예외를 던진다.
+ */
+class FixedClaimsTokenVerifier {
+    private static final String HEADER = "eyJhbGciOiJIUzI1NiJ9"; // {"alg":"HS256"}
+    private static final int SIGNATURE_CHARS = 43;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final byte[] BASE64_URL_VALUES = base64UrlValues();
+
+    private final ThreadLocal<Buffers> buffers;
+
+    FixedClaimsTokenVerifier(SecretKeySpec secretKey) {
+        this.buffers = ThreadLocal.withInitial(() -> new Buffers(FixedClaimsTokenEncoder.newMac(secretKey)));
+    }
+
+    /**
+     * @return 서명을 확인한 토큰(만료 여부는 확인하지 않는다). 이 검증기로 확인할 수 없으면 null
+     */
+    VerifiedToken verify(String token) {
+        int length = token.length();
+        int payloadStart = HEADER.length() + 1;
+        int signedLength = length - SIGNATURE_CHARS - 1;
+
+        if (signedLength <= payloadStart || !token.startsWith(HEADER)
+                || token.charAt(HEADER.length()) != '.' || token.charAt(signedLength) != '.')
+            return null;
+
+        Buffers b = buffers.get();
+        byte[] signed = b.signed(signedLength);
+        for (int i = 0; i < signedLength; i++) {
+            char c = token.charAt(i);
+            if (i >= payloadStart && (c >= 128 || BASE64_URL_VALUES[c] < 0))
+                return null;
+            signed[i] = (byte) c;
+        }
+
+        try {
+            b.mac.update(signed, 0, signedLength);
+            b.mac.doFinal(b.signature, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        FixedClaimsTokenEncoder.putBase64(b.expected, 0, b.signature, FixedClaimsTokenEncoder.SIGNATURE_LENGTH);
+
+        int diff = 0;
+        for (int i = 0; i < SIGNATURE_CHARS; i++)
+            diff |= b.expected[i] ^ token.charAt(signedLength + 1 + i);
+        if (diff != 0)
+            return null;
+
+        int payloadLength = decodeBase64(signed, payloadStart, signedLength, b);
+        if (payloadLength < 0)
+            return null;
+
+        return toVerifiedToken(b.payload, payloadLength);
+    }
+
+    private static VerifiedToken toVerifiedToken(byte[] json, int length) {
+        Payload payload;
+        try {
+            payload = OBJECT_MAPPER.readValue(json, 0, length, Payload.class);
+        } catch (IOException e) {
+            return null; // 모르는 클레임이 있거나 형식이 다르면 jjwt에 맡긴다.
+        }
+
+        if (payload.category() == null || payload.username() == null || payload.role() == null
+                || payload.iat() == null || payload.exp() == null)
+            return null;
+
+        return new VerifiedToken(payload.category(), payload.username(), payload.role(), payload.fid(), payload.iat() * 1000, payload.exp() * 1000);
+    }
+
+    /**
+     * signed[from, to)의 Base64URL(패딩 없음)을 b.payload에 디코딩한다. 길이가 맞지 않으면 -1
+     */
+    private static int decodeBase64(byte[] source, int from, int to, Buffers b) {
+        int chars = to - from;
+        if (chars % 4 == 1)
+            return -1;
+
+        byte[] target = b.payload(chars * 3 / 4);
+        int offset = 0;
+        int bits = 0;
+        int bitCount = 0;
+
+        for (int i = from; i < to; i++) {
+            bits = bits << 6 | BASE64_URL_VALUES[source[i]];
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                target[offset++] = (byte) (bits >> bitCount);
+            }
+        }
+        return offset;
+    }
+
+    private static byte[] base64UrlValues() {
+        byte[] values = new byte[128];
+        Arrays.fill(values, (byte) -1);
+        for (int i = 0; i < FixedClaimsTokenEncoder.BASE64_URL.length; i++)
+            values[FixedClaimsTokenEncoder.BASE64_URL[i]] = (byte) i;
+        return values;
+    }
+
+    record Payload(String category, String username, String role, String fid, Long iat, Long exp) {
+    }
+
+    private static class Buffers {
+        final Mac mac;
+        final byte[] signature = new byte[FixedClaimsTokenEncoder.SIGNATURE_LENGTH];
+        final byte[] expected = new byte[SIGNATURE_CHARS];
+        byte[] signed = new byte[512];
+        byte[] payload = new byte[256];
+
+        Buffers(Mac mac) {
+            this.mac = mac;
+        }
+
+        byte[] signed(int capacity) {
+            if (signed.length < capacity)
+                signed = new byte[Math.max(capacity, signed.length * 2)];
+            return signed;
+        }
+
+        byte[] payload(int capacity) {
+            if (payload.length < capacity)
+                payload = new byte[Math.max(capacity, payload.length * 2)];
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.kb.jwttest.jwt;
+
+/**
+ * 발급한 토큰과 토큰에 들어간 만료 시각(exp, epoch millis). 저장소 TTL을 exp에 맞추는 데 쓴다.
+ * familyId는 refresh token에만 있다.
+ */
+public record IssuedToken(
+        String value,
+        String familyId,
+        long expiration
+) {
+}
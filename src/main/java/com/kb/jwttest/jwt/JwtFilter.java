@@ -2,11 +2,11 @@ package com.kb.jwttest.jwt;
 
 import com.kb.jwttest.entity.UserEntity;
 import com.kb.jwttest.security.CustomUserDetails;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -20,9 +20,16 @@ import java.io.PrintWriter;
  * 요청을 확인해서 JWT가 있으면 SecurityContextHolder에 저장한다.
  */
 @Slf4j
-@RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
     private final JwtUtils jwtUtils;
+    private final AccessTokenRevocations accessTokenRevocations;
+    private final TokenVerificationMetrics metrics;
+
+    public JwtFilter(JwtUtils jwtUtils, AccessTokenRevocations accessTokenRevocations, MeterRegistry meterRegistry) {
+        this.jwtUtils = jwtUtils;
+        this.accessTokenRevocations = accessTokenRevocations;
+        this.metrics = new TokenVerificationMetrics(meterRegistry, "access");
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
@@ -34,31 +41,45 @@ public class JwtFilter extends OncePerRequestFilter {
             return;
         }
 
-        if (jwtUtils.isExpired(accessToken)) {
+        VerifiedToken token = metrics.verify(jwtUtils, accessToken);
+
+        if (token.isExpired()) {
             log.debug("token is expired");
+            metrics.reject(TokenVerificationMetrics.Rejection.EXPIRED);
             PrintWriter writer = response.getWriter();
             writer.print("access token expired");
             response.setStatus(HttpStatus.UNAUTHORIZED.value());
             return;
         }
 
-        if (!jwtUtils.isAccessToken(accessToken)) {
+        if (!token.isAccessToken()) {
             log.debug("invalid access token");
+            metrics.reject(TokenVerificationMetrics.Rejection.WRONG_CATEGORY);
+            PrintWriter writer = response.getWriter();
+            writer.print("access token expired");
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            return;
+        }
+
+        // 클라이언트가 refresh token으로 재발급을 시도하도록 만료와 같은 응답을 준다.
+        if (accessTokenRevocations.isRevoked(token)) {
+            log.debug("access token is revoked");
+            metrics.reject(TokenVerificationMetrics.Rejection.REVOKED);
             PrintWriter writer = response.getWriter();
             writer.print("access token expired");
             response.setStatus(HttpStatus.UNAUTHORIZED.value());
             return;
         }
 
-        UsernamePasswordAuthenticationToken authenticationToken = getUsernamePasswordAuthenticationToken(accessToken);
+        UsernamePasswordAuthenticationToken authenticationToken = getUsernamePasswordAuthenticationToken(token);
 
         SecurityContextHolder.getContext().setAuthentication(authenticationToken);
 
         filterChain.doFilter(request, response);
     }
 
-    private UsernamePasswordAuthenticationToken getUsernamePasswordAuthenticationToken(String token) {
-        UserEntity userEntity = UserEntity.builder().username(jwtUtils.getUsername(token)).role(jwtUtils.getRole(token)).build();
+    private UsernamePasswordAuthenticationToken getUsernamePasswordAuthenticationToken(VerifiedToken token) {
+        UserEntity userEntity = UserEntity.builder().username(token.username()).role(token.role()).build();
         CustomUserDetails userDetails = new CustomUserDetails(userEntity);
         return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
     }
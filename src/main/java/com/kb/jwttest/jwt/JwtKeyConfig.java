@@ -0,0 +1,26 @@
+package com.kb.jwttest.jwt;
+
+import io.jsonwebtoken.Jwts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+@Configuration
+@EnableConfigurationProperties(JwtSigningProperties.class)
+public class JwtKeyConfig {
+
+    /**
+     * jwt.signing.algorithm이 HS256이 아닐 때만 만든다. 없으면 JwtUtils는 jwt.secret(HS256)으로 동작한다.
+     */
+    @Bean
+    @ConditionalOnExpression("!'${jwt.signing.algorithm:HS256}'.equalsIgnoreCase('HS256')")
+    public SigningKeyRing signingKeyRing(JwtSigningProperties properties, @Value("${jwt.secret}") String secret) {
+        SecretKeySpec secretKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), Jwts.SIG.HS256.key().build().getAlgorithm());
+        return SigningKeyRing.from(properties, secretKey);
+    }
+}
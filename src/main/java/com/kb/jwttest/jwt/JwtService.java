@@ -1,45 +1,184 @@
 package com.kb.jwttest.jwt;
 
 import com.kb.jwttest.dto.Tokens;
-import com.kb.jwttest.redis.RefreshToken;
-import com.kb.jwttest.redis.RefreshTokenRepository;
-import lombok.RequiredArgsConstructor;
+import com.kb.jwttest.redis.RefreshTokenSession;
+import com.kb.jwttest.redis.RefreshTokenStore;
+import com.kb.jwttest.redis.RotationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-@RequiredArgsConstructor
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
 @Service
 public class JwtService {
     private final JwtUtils jwtUtils;
-    private final RefreshTokenRepository refreshTokenRepository;
+    private final RefreshTokenStore refreshTokenStore;
+    private final ReissueCoalescer reissueCoalescer;
+    private final AccessTokenRevocations accessTokenRevocations;
+    private final TokenVerificationMetrics metrics;
+    private final Timer reissueSuccess;
+    private final Timer reissueFailure;
+    private final Counter accessIssued;
+    private final Counter refreshIssued;
+    private final Counter rotated;
+    private final Counter rotatedConcurrently;
+    private final Counter revokedByLogout;
+    private final Counter revokedByLogoutAll;
+    private final Counter revokedByReuse;
+
+    public JwtService(JwtUtils jwtUtils, RefreshTokenStore refreshTokenStore, ReissueCoalescer reissueCoalescer,
+                      AccessTokenRevocations accessTokenRevocations, MeterRegistry meterRegistry) {
+        this.jwtUtils = jwtUtils;
+        this.refreshTokenStore = refreshTokenStore;
+        this.reissueCoalescer = reissueCoalescer;
+        this.accessTokenRevocations = accessTokenRevocations;
+        this.metrics = new TokenVerificationMetrics(meterRegistry, "refresh");
+        this.reissueSuccess = reissueTimer(meterRegistry, "success");
+        this.reissueFailure = reissueTimer(meterRegistry, "failure");
+        this.accessIssued = issuedCounter(meterRegistry, "access");
+        this.refreshIssued = issuedCounter(meterRegistry, "refresh");
+        this.rotated = rotatedCounter(meterRegistry, false);
+        this.rotatedConcurrently = rotatedCounter(meterRegistry, true);
+        this.revokedByLogout = revokedCounter(meterRegistry, "logout");
+        this.revokedByLogoutAll = revokedCounter(meterRegistry, "logout_all");
+        this.revokedByReuse = revokedCounter(meterRegistry, "reuse_detected");
+    }
 
-    @Transactional
+    /**
+     * 같은 refresh token으로 동시에 들어온 요청은 한 번만 교체하고 결과를 나눠 받는다({@link ReissueCoalescer}).
+     */
     public Tokens reissue(String refreshToken) {
-        validateRefreshToken(refreshToken);
+        long start = System.nanoTime();
+        boolean success = false;
+
+        try {
+            Tokens tokens = reissueCoalescer.reissue(refreshToken, this::rotate);
+            success = true;
+            return tokens;
+        } finally {
+            (success ? reissueSuccess : reissueFailure).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public VerifiedToken validateRefreshToken(String refreshToken) {
+        VerifiedToken token = verifyRefreshToken(refreshToken);
+
+        if (!refreshTokenStore.exists(refreshToken)) {
+            metrics.reject(TokenVerificationMetrics.Rejection.NOT_FOUND);
+            throw new RuntimeException("refresh token is not found");
+        }
+
+        return token;
+    }
 
-        String newAccessToken = jwtUtils.createAccessToken(jwtUtils.getUsername(refreshToken), jwtUtils.getRole(refreshToken));
-        String newRefreshToken = jwtUtils.createRefreshToken(jwtUtils.getUsername(refreshToken), jwtUtils.getRole(refreshToken));
+    /**
+     * refresh token을 지우고, 이미 발급된 사용자의 access token도 폐기한다({@link AccessTokenRevocations}).
+     * refresh token은 이미 지웠으므로 access token 폐기가 실패해도 로그아웃은 성공으로 끝낸다. 남은 access token은 수명이 다하면 만료된다.
+     */
+    public void logout(String refreshToken, String username) {
+        if (refreshTokenStore.delete(refreshToken))
+            revokedByLogout.increment();
 
-        refreshTokenRepository.deleteByToken(refreshToken);
-        refreshTokenRepository.save(new RefreshToken(newRefreshToken));
+        try {
+            accessTokenRevocations.revoke(username);
+        } catch (RuntimeException e) {
+            log.warn("failed to revoke access tokens on logout. username={}", username, e);
+        }
+    }
 
-        return new Tokens(newAccessToken, newRefreshToken);
+    /**
+     * 사용자의 모든 기기에서 로그아웃시킨다. 폐기한 세션 수를 반환한다.
+     */
+    public int logoutAll(String username) {
+        int revoked = refreshTokenStore.revokeAll(username).size();
+        accessTokenRevocations.revoke(username);
+        revokedByLogoutAll.increment(revoked);
+        return revoked;
     }
 
-    public void validateRefreshToken(String refreshToken) {
-        if (jwtUtils.isExpired(refreshToken))
+    public List<RefreshTokenSession> getSessions(String username) {
+        return refreshTokenStore.findSessions(username);
+    }
+
+    private Tokens rotate(String refreshToken) {
+        VerifiedToken token = verifyRefreshToken(refreshToken);
+        // family가 없는 이전 토큰은 이번 교체부터 새 family로 이어진다.
+        String familyId = token.familyId() != null ? token.familyId() : JwtUtils.newFamilyId();
+
+        String newAccessToken = jwtUtils.createAccessToken(token.username(), token.role());
+        IssuedToken newRefreshToken = jwtUtils.issueRefreshToken(token.username(), token.role(), familyId);
+
+        // 존재 확인, 삭제, 저장, 재사용 판단을 한 번의 Redis 왕복으로 처리한다.
+        RotationResult result = refreshTokenStore.rotate(refreshToken, newRefreshToken.value(), familyId, token.username(), newRefreshToken.expiration());
+
+        switch (result.status()) {
+            case NOT_FOUND -> {
+                metrics.reject(TokenVerificationMetrics.Rejection.NOT_FOUND);
+                throw new RuntimeException("refresh token is not found");
+            }
+            case REUSE_DETECTED -> {
+                log.warn("refresh token reuse detected. username={}, familyId={}, revoked={}", token.username(), familyId, result.revokedTokenIds().size());
+                metrics.reject(TokenVerificationMetrics.Rejection.REUSE_DETECTED);
+                revokedByReuse.increment(result.revokedTokenIds().size());
+                // 탈취된 refresh token으로 이미 받아 간 access token도 막는다.
+                accessTokenRevocations.revoke(token.username());
+                throw new RuntimeException("refresh token reuse detected");
+            }
+            case CONCURRENT -> rotatedConcurrently.increment();
+            case ROTATED -> rotated.increment();
+        }
+
+        accessIssued.increment();
+        refreshIssued.increment();
+        return new Tokens(newAccessToken, newRefreshToken.value());
+    }
+
+    private VerifiedToken verifyRefreshToken(String refreshToken) {
+        VerifiedToken token = metrics.verify(jwtUtils, refreshToken);
+
+        if (token.isExpired()) {
+            metrics.reject(TokenVerificationMetrics.Rejection.EXPIRED);
             throw new RuntimeException("refresh token is expired");
+        }
 
-        if (!jwtUtils.isRefreshToken(refreshToken))
+        if (!token.isRefreshToken()) {
+            metrics.reject(TokenVerificationMetrics.Rejection.WRONG_CATEGORY);
             throw new RuntimeException("token is invalid");
+        }
 
-        if (!refreshTokenRepository.existsByToken(refreshToken))
-            throw new RuntimeException("refresh token is not found");
+        return token;
+    }
+
+    private static Timer reissueTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("auth.reissue")
+                .description("Time spent reissuing tokens from a refresh token")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter rotatedCounter(MeterRegistry meterRegistry, boolean concurrent) {
+        return Counter.builder("auth.tokens.rotated")
+                .description("Refresh tokens rotated by reissue. concurrent=true means another request had just rotated the same token")
+                .tag("concurrent", String.valueOf(concurrent))
+                .register(meterRegistry);
+    }
+
+    static Counter issuedCounter(MeterRegistry meterRegistry, String category) {
+        return Counter.builder("auth.tokens.issued")
+                .description("Tokens issued, by category")
+                .tag("category", category)
+                .register(meterRegistry);
     }
 
-    @Transactional
-    public void logout(String refreshToken) {
-        refreshTokenRepository.findByToken(refreshToken)
-                .ifPresent(refreshTokenRepository::delete);
+    private static Counter revokedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("auth.tokens.revoked")
+                .description("Refresh tokens revoked, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
     }
 }
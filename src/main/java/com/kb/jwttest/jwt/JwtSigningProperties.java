@@ -0,0 +1,25 @@
+package com.kb.jwttest.jwt;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * 비대칭 서명 모드 설정(jwt.signing.*). algorithm이 HS256이면 기존처럼 jwt.secret 하나로 서명/검증한다.
+ *
+ * @param algorithm   HS256, ES256, EdDSA(Ed25519)
+ * @param activeKid   서명에 쓸 키의 kid. 나머지 키는 검증에만 쓴다(교체 중 이전 키로 발급된 토큰 검증용).
+ * @param keys        kid별 키. privateKey는 PKCS#8, publicKey는 X.509 형식의 Base64(PEM 헤더 허용). 검증 전용 키는 privateKey를 비워 둔다.
+ * @param acceptHs256 비대칭 모드로 바꾼 뒤에도 kid 없는 HS256 토큰(jwt.secret)을 받아 줄지. 전환 기간에 기존 토큰을 살려 두는 용도
+ */
+@ConfigurationProperties("jwt.signing")
+public record JwtSigningProperties(
+        @DefaultValue("HS256") String algorithm,
+        String activeKid,
+        @DefaultValue List<Key> keys,
+        @DefaultValue("false") boolean acceptHs256
+) {
+    public record Key(String kid, String privateKey, String publicKey) {
+    }
+}
@@ -1,10 +1,14 @@
 package com.kb.jwttest.jwt;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.spec.SecretKeySpec;
@@ -12,6 +16,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Component
 public class JwtUtils {
@@ -20,54 +26,119 @@ public class JwtUtils {
     private final static String USERNAME = "username";
     private final static String ROLE = "role";
     private final static String CATEGORY = "category";
+    private final static String FAMILY_ID = "fid";
 
     private final SecretKeySpec secretKey;
+    private final JwtParser jwtParser;
     private final long accesExpiredMs;
     private final long refreshExpiredMs;
+    private final VerifiedTokenCache tokenCache;
+    private final FixedClaimsTokenEncoder tokenEncoder;
+    private final FixedClaimsTokenVerifier tokenVerifier;
+    private final SigningKeyRing signingKeyRing;
 
+    public JwtUtils(String secret, long accesExpiredMs, long refreshExpiredMs, long tokenCacheMaxSize) {
+        this(secret, accesExpiredMs, refreshExpiredMs, tokenCacheMaxSize, null);
+    }
+
+    /**
+     * @param tokenCacheMaxSize 검증된 access token 캐시 크기. 0이면 캐시를 쓰지 않는다.
+     * @param signingKeyRing    비대칭 서명 모드의 키 묶음. null이면 jwt.secret(HS256)으로 서명/검증한다.
+     */
+    @Autowired
     public JwtUtils(@Value("${jwt.secret}") String secret,
                     @Value("${jwt.accesExpiredMs}") long accesExpiredMs,
-                    @Value("${jwt.refreshExpiredMs}") long refreshExpiredMs) {
+                    @Value("${jwt.refreshExpiredMs}") long refreshExpiredMs,
+                    @Value("${jwt.cache.maxSize:0}") long tokenCacheMaxSize,
+                    @Nullable SigningKeyRing signingKeyRing) {
         this.secretKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), Jwts.SIG.HS256.key().build().getAlgorithm());
+        // JwtParser는 불변이고 thread-safe 하므로 한 번만 만들어서 모든 요청 스레드가 공유한다.
+        // 비대칭 모드에서는 헤더의 kid로 검증 키를 찾는다.
+        this.jwtParser = signingKeyRing != null
+                ? Jwts.parser().keyLocator(signingKeyRing).build()
+                : Jwts.parser().verifyWith(secretKey).build();
         this.accesExpiredMs = accesExpiredMs;
         this.refreshExpiredMs = refreshExpiredMs;
+        this.tokenCache = tokenCacheMaxSize > 0 ? new VerifiedTokenCache(tokenCacheMaxSize) : null;
+        // 전용 인코더/검증기는 HS256 전용이다.
+        this.tokenEncoder = signingKeyRing == null ? new FixedClaimsTokenEncoder(secretKey) : null;
+        this.tokenVerifier = signingKeyRing == null ? new FixedClaimsTokenVerifier(secretKey) : null;
+        this.signingKeyRing = signingKeyRing;
+    }
+
+    /**
+     * 토큰을 한 번만 파싱/검증해서 클레임을 꺼낸다. 만료된 토큰도 서명이 유효하면 반환하므로 {@link VerifiedToken#isExpired()}로 확인한다.
+     */
+    public VerifiedToken verify(String token) {
+        if (tokenCache == null)
+            return parse(token);
+
+        VerifiedToken cached = tokenCache.get(token);
+        if (cached != null)
+            return cached;
+
+        VerifiedToken verified = parse(token);
+        // refresh token은 한 번 쓰면 교체되므로 반복해서 들어오는 access token만 캐싱한다.
+        if (verified.isAccessToken())
+            tokenCache.put(token, verified);
+
+        return verified;
+    }
+
+    public CacheStats getTokenCacheStats() {
+        return tokenCache != null ? tokenCache.stats() : CacheStats.empty();
     }
 
     public String getUsername(String token) {
-        return getPayload(token).get(USERNAME, String.class);
+        return verify(token).username();
     }
 
     public String getRole(String token) {
-        return getPayload(token).get(ROLE, String.class);
+        return verify(token).role();
     }
 
     public String getCategory(String token) {
-        return getPayload(token).get(CATEGORY, String.class);
+        return verify(token).category();
     }
 
     public boolean isExpired(String token) {
-        try {
-            return getPayload(token)
-                    .getExpiration()
-                    .before(new Date());
-        } catch (ExpiredJwtException e) {
-            return true;
-        }
+        return verify(token).isExpired();
     }
 
     public boolean isAccessToken(String token) {
-        return getCategory(token).equals(ACCESS);
+        return verify(token).isAccessToken();
     }
 
     public boolean isRefreshToken(String refreshToken) {
-        return getCategory(refreshToken).equals(REFRESH);
+        return verify(refreshToken).isRefreshToken();
+    }
+
+    private VerifiedToken parse(String token) {
+        // 우리가 발급한 형식이면 스레드별 Mac으로 바로 검증하고, 아니면(서명 불일치 포함) jjwt가 검증하고 예외를 던진다.
+        VerifiedToken verified = tokenVerifier != null ? tokenVerifier.verify(token) : null;
+        if (verified != null)
+            return verified;
+
+        try {
+            return toVerifiedToken(getPayload(token));
+        } catch (ExpiredJwtException e) {
+            return toVerifiedToken(e.getClaims());
+        }
+    }
+
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        return new VerifiedToken(
+                claims.get(CATEGORY, String.class),
+                claims.get(USERNAME, String.class),
+                claims.get(ROLE, String.class),
+                claims.get(FAMILY_ID, String.class),
+                claims.getIssuedAt().getTime(),
+                claims.getExpiration().getTime()
+        );
     }
 
     private Claims getPayload(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
+        return jwtParser.parseSignedClaims(token)
                 .getPayload();
     }
 
@@ -76,17 +147,73 @@ public class JwtUtils {
     }
 
     public String createRefreshToken(String username, String role) {
-        return createToken(REFRESH, username, role, refreshExpiredMs);
+        return issueRefreshToken(username, role).value();
+    }
+
+    /**
+     * 로그인할 때 쓴다. 새 token family를 시작한다.
+     */
+    public IssuedToken issueRefreshToken(String username, String role) {
+        return issueRefreshToken(username, role, newFamilyId());
+    }
+
+    /**
+     * 재발급할 때 쓴다. 기존 토큰의 family를 이어받는다.
+     */
+    public IssuedToken issueRefreshToken(String username, String role, String familyId) {
+        return issueToken(REFRESH, username, role, familyId, refreshExpiredMs);
     }
 
     public String createToken(String category, String username, String role, long expiredMs) {
+        return issueToken(category, username, role, expiredMs).value();
+    }
+
+    public IssuedToken issueToken(String category, String username, String role, long expiredMs) {
+        return issueToken(category, username, role, null, expiredMs);
+    }
+
+    /**
+     * family id는 서명된 클레임이라 위조할 수 없으므로 예측 불가능할 필요는 없다. 요청 경로에서 SecureRandom을 쓰지 않는다.
+     */
+    public static String newFamilyId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    private IssuedToken issueToken(String category, String username, String role, String familyId, long expiredMs) {
+        long now = System.currentTimeMillis();
+        long expiration = now + expiredMs;
+
+        // 고정된 클레임 구성은 전용 인코더로 바로 만들고, 인코더가 처리하지 않는 입력만 jjwt 빌더를 쓴다. 결과는 같다.
+        String token = tokenEncoder != null ? tokenEncoder.encode(category, username, role, familyId, now / 1000, expiration / 1000) : null;
+        if (token == null)
+            token = buildToken(category, username, role, familyId, now, expiration);
+
+        // exp 클레임은 초 단위로 잘려서 들어간다.
+        return new IssuedToken(token, familyId, expiration / 1000 * 1000);
+    }
+
+    private String buildToken(String category, String username, String role, String familyId, long issuedAt, long expiration) {
+        if (signingKeyRing != null)
+            return Jwts.builder()
+                    .header().keyId(signingKeyRing.getActiveKid()).and()
+                    .claim(CATEGORY, category)
+                    .claim(USERNAME, username)
+                    .claim(ROLE, role)
+                    .claim(FAMILY_ID, familyId)
+                    .issuedAt(new Date(issuedAt))
+                    .expiration(new Date(expiration))
+                    .signWith(signingKeyRing.getSigningKey(), signingKeyRing.getAlgorithm())
+                    .compact();
+
         return Jwts.builder()
                 .claim(CATEGORY, category)
                 .claim(USERNAME, username)
                 .claim(ROLE, role)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiredMs))
-                .signWith(secretKey)
+                .claim(FAMILY_ID, familyId)
+                .issuedAt(new Date(issuedAt))
+                .expiration(new Date(expiration))
+                .signWith(secretKey, Jwts.SIG.HS256)
                 .compact();
     }
 
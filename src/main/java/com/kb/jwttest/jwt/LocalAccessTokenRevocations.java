@@ -0,0 +1,61 @@
+package com.kb.jwttest.jwt;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+
+/**
+ * 노드 로컬 {@link RevokedBeforeMap}만 쓰는 구현. 노드 사이에 공유하지 않으므로 jwt.store.type=memory(단일 노드)에서 쓰고,
+ * Redis 구현은 다른 노드에서 받은 시각을 이 구현에 반영해서 확인한다.
+ * <p>
+ * iat가 초 단위라서 revoked-before도 초 단위로 내린다. 폐기한 그 초에 발급된 토큰은 살아남지만,
+ * 그래야 다른 기기가 폐기 직후 재발급받은 토큰이 거절되지 않는다.
+ */
+public class LocalAccessTokenRevocations implements AccessTokenRevocations {
+    private final RevokedBeforeMap revokedBefore = new RevokedBeforeMap();
+    private final long accessExpiredMs;
+
+    public LocalAccessTokenRevocations(long accessExpiredMs, MeterRegistry meterRegistry) {
+        this.accessExpiredMs = accessExpiredMs;
+        Gauge.builder("auth.access.revocations", revokedBefore, RevokedBeforeMap::size)
+                .description("Users with a revoked-before epoch for access tokens held on this node")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void revoke(List<String> usernames) {
+        long epoch = epochOf(System.currentTimeMillis());
+        for (String username : usernames)
+            apply(username, epoch);
+    }
+
+    @Override
+    public boolean isRevoked(VerifiedToken token) {
+        return token.issuedAt() < revokedBefore.get(token.username());
+    }
+
+    /**
+     * revoked-before 시각을 반영한다. 이미 더 늦은 시각이 있거나 access token 수명이 지난 시각이면 무시한다.
+     */
+    public boolean apply(String username, long epoch) {
+        return epoch > System.currentTimeMillis() - accessExpiredMs && revokedBefore.raise(username, epoch);
+    }
+
+    /**
+     * access token 수명보다 오래된 시각은 더 거절할 토큰이 없으므로 지운다.
+     */
+    @Scheduled(fixedDelayString = "${jwt.accessRevocation.pruneMs:60000}")
+    public void prune() {
+        revokedBefore.removeOlderThan(System.currentTimeMillis() - accessExpiredMs);
+    }
+
+    public int size() {
+        return revokedBefore.size();
+    }
+
+    public static long epochOf(long now) {
+        return now - now % 1000;
+    }
+}
@@ -1,11 +1,21 @@
 package com.kb.jwttest.jwt;
 
-import com.kb.jwttest.redis.RefreshToken;
-import com.kb.jwttest.redis.RefreshTokenRepository;
+import com.kb.jwttest.redis.RefreshTokenStore;
 import com.kb.jwttest.security.CustomUserDetails;
+import com.kb.jwttest.security.PasswordHashingExecutor;
+import com.kb.jwttest.security.PooledPasswordEncoder;
+import com.kb.jwttest.security.PasswordUpgrader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -14,17 +24,88 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 요청에 있는 로그인 정보를 꺼내서 인증을 하고, JWT를 발급하는 필터
+ * <p>
+ * 로그인은 톰캣 요청 스레드가 아니라 ioExecutor에서 비동기로 처리한다. 그 안에서 비밀번호 검증(BCrypt)만
+ * {@link PasswordHashingExecutor}에서 실행하므로({@link PooledPasswordEncoder}), 사용자 조회나 refresh token 저장이 느려도 해시 풀 자리를 차지하지 않는다.
+ * 해시 대기열이 가득 차면 503으로 응답한다.
  */
+@Slf4j
 public class LoginFilter extends UsernamePasswordAuthenticationFilter {
     private final JwtUtils jwtUtils;
-    private final RefreshTokenRepository refreshTokenRepository;
+    private final RefreshTokenStore refreshTokenStore;
+    private final Executor ioExecutor;
+    private final PasswordUpgrader passwordUpgrader;
+    private final Timer loginSuccess;
+    private final Timer loginFailure;
+    private final Timer loginRejected;
+    private final Counter accessIssued;
+    private final Counter refreshIssued;
 
-    public LoginFilter(AuthenticationManager authenticationManager, JwtUtils jwtUtils, RefreshTokenRepository refreshTokenRepository) {
+    public LoginFilter(AuthenticationManager authenticationManager, JwtUtils jwtUtils, RefreshTokenStore refreshTokenStore,
+                       Executor ioExecutor, PasswordUpgrader passwordUpgrader, MeterRegistry meterRegistry) {
         super(authenticationManager);
         this.jwtUtils = jwtUtils;
-        this.refreshTokenRepository = refreshTokenRepository;
+        this.refreshTokenStore = refreshTokenStore;
+        this.ioExecutor = ioExecutor;
+        this.passwordUpgrader = passwordUpgrader;
+        this.loginSuccess = loginTimer(meterRegistry, "success");
+        this.loginFailure = loginTimer(meterRegistry, "failure");
+        this.loginRejected = loginTimer(meterRegistry, "rejected");
+        this.accessIssued = JwtService.issuedCounter(meterRegistry, "access");
+        this.refreshIssued = JwtService.issuedCounter(meterRegistry, "refresh");
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) request;
+        HttpServletResponse res = (HttpServletResponse) response;
+
+        if (!requiresAuthentication(req, res)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        AsyncContext asyncContext = req.startAsync();
+        long start = System.nanoTime();
+
+        try {
+            ioExecutor.execute(() -> {
+                try {
+                    super.doFilter(request, response, chain);
+                } catch (RejectedExecutionException e) {
+                    reject(res);
+                } catch (IOException | ServletException | RuntimeException e) {
+                    log.warn("login failed", e);
+                    if (!res.isCommitted())
+                        res.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                } finally {
+                    // 대기열에서 기다린 시간까지 포함한 로그인 한 건의 처리 시간
+                    Timer timer = res.getStatus() == HttpStatus.OK.value() ? loginSuccess
+                            : res.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value() ? loginRejected : loginFailure;
+                    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    asyncContext.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reject(res);
+            loginRejected.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * 대기열이 가득 차면 기다리지 않고 바로 거절한다.
+     */
+    private static void reject(HttpServletResponse response) {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", "1");
     }
 
     @Override
@@ -34,7 +115,13 @@ public class LoginFilter extends UsernamePasswordAuthenticationFilter {
 
         UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(username, password);
 
-        return super.getAuthenticationManager().authenticate(authToken); // 검증을 위임
+        Authentication authentication = super.getAuthenticationManager().authenticate(authToken); // 검증을 위임
+
+        // 저장된 해시의 cost가 현재 설정보다 낮으면 백그라운드에서 다시 해시한다.
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        passwordUpgrader.upgradeIfNeeded(userDetails.getUsername(), userDetails.getPassword(), password);
+
+        return authentication;
     }
 
     // 인증 성공 시
@@ -44,16 +131,30 @@ public class LoginFilter extends UsernamePasswordAuthenticationFilter {
         GrantedAuthority grantedAuthority = userDetails.getAuthorities().stream().findAny().orElseThrow();
 
         String access = jwtUtils.createAccessToken(userDetails.getUsername(), grantedAuthority.getAuthority());
-        String refresh = jwtUtils.createRefreshToken(userDetails.getUsername(), grantedAuthority.getAuthority());
+        IssuedToken refresh = jwtUtils.issueRefreshToken(userDetails.getUsername(), grantedAuthority.getAuthority());
 
-        refreshTokenRepository.save(new RefreshToken(refresh));
+        refreshTokenStore.save(refresh.value(), refresh.familyId(), userDetails.getUsername(), refresh.expiration());
+        accessIssued.increment();
+        refreshIssued.increment();
 
-        HttpResponseUtil.setSuccessResponse(response, access, refresh);
+        HttpResponseUtil.setSuccessResponse(response, access, refresh.value());
     }
 
     // 인증 실패 시
     @Override
     protected void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response, AuthenticationException failed) {
+        // 없는 사용자의 타이밍 보호용 검증이 해시 대기열에서 거절되면 인증 실패가 아니라 거절로 응답한다.
+        if (failed.getCause() instanceof RejectedExecutionException) {
+            reject(response);
+            return;
+        }
         response.setStatus(HttpStatus.UNAUTHORIZED.value());
     }
+
+    private static Timer loginTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("auth.login")
+                .description("Time spent on a login request, including the wait for a hashing thread")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
 }
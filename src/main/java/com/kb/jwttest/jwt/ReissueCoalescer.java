@@ -0,0 +1,110 @@
+package com.kb.jwttest.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kb.jwttest.dto.Tokens;
+import com.kb.jwttest.redis.RefreshTokenIds;
+import com.kb.jwttest.redis.RefreshTokenStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 같은 refresh token으로 동시에 들어온 재발급 요청을 이 노드 안에서 한 번의 교체로 합친다.
+ * <p>
+ * access token이 만료되면 SPA가 여러 요청을 한꺼번에 보내면서 각각 /reissue를 호출한다. 먼저 들어온 요청만 교체를 실행하고,
+ * 진행 중에 들어온 요청은 그 결과(또는 예외)를 함께 받는다. 교체가 끝난 뒤 resultTtlMs 안에 들어온 요청도 같은 토큰 쌍을 받는다.
+ * 키는 토큰 원문 대신 {@link RefreshTokenIds}다.
+ * <p>
+ * 결과를 재사용하는 시간은 jwt.rotation.graceMs보다 길게 둘 수 없다. 그보다 늦게 들어온 요청은 저장소의 재사용 판단에 맡긴다.
+ * 남겨 둔 토큰 쌍은 그 refresh token이 저장소에 아직 있을 때만 돌려준다. 그 사이 로그아웃이나 폐기가 있었으면 교체를 다시 실행해 저장소가 판단하게 한다.
+ */
+@Component
+public class ReissueCoalescer {
+    private final ConcurrentHashMap<String, CompletableFuture<Tokens>> inFlight = new ConcurrentHashMap<>();
+    private final RefreshTokenStore refreshTokenStore;
+    private final Cache<String, Tokens> recentResults;
+    private final Counter joinedInFlight;
+    private final Counter servedFromRecent;
+
+    public ReissueCoalescer(RefreshTokenStore refreshTokenStore,
+                            @Value("${jwt.reissue.resultTtlMs:1000}") long resultTtlMs,
+                            @Value("${jwt.rotation.graceMs:2000}") long rotationGraceMs,
+                            @Value("${jwt.reissue.maxRecentResults:10000}") long maxRecentResults,
+                            MeterRegistry meterRegistry) {
+        if (resultTtlMs > rotationGraceMs)
+            throw new IllegalArgumentException("jwt.reissue.resultTtlMs must not exceed jwt.rotation.graceMs: "
+                    + resultTtlMs + " > " + rotationGraceMs);
+
+        this.refreshTokenStore = refreshTokenStore;
+        this.recentResults = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(resultTtlMs))
+                .maximumSize(maxRecentResults)
+                .build();
+        this.joinedInFlight = coalescedCounter(meterRegistry, "in_flight");
+        this.servedFromRecent = coalescedCounter(meterRegistry, "recent");
+    }
+
+    /**
+     * @param rotation 실제 교체. 같은 토큰에 대해 동시에 한 번만 실행된다.
+     */
+    public Tokens reissue(String refreshToken, Function<String, Tokens> rotation) {
+        String key = RefreshTokenIds.of(refreshToken);
+
+        Tokens recent = recentResults.getIfPresent(key);
+        if (recent != null) {
+            if (refreshTokenStore.exists(recent.refreshToken())) {
+                servedFromRecent.increment();
+                return recent;
+            }
+            recentResults.invalidate(key);
+        }
+
+        CompletableFuture<Tokens> mine = new CompletableFuture<>();
+        CompletableFuture<Tokens> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            joinedInFlight.increment();
+            return join(running);
+        }
+
+        try {
+            Tokens tokens = rotation.apply(refreshToken);
+            // 진행 중 목록에서 빼기 전에 결과를 남겨서, 그 사이에 들어온 요청이 교체를 다시 실행하지 않게 한다.
+            recentResults.put(key, tokens);
+            mine.complete(tokens);
+            return tokens;
+        } catch (Throwable e) {
+            // Error도 기다리는 요청에 넘겨야 join()에서 영원히 멈추지 않는다.
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static Tokens join(CompletableFuture<Tokens> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    private static Counter coalescedCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("auth.reissue.coalesced")
+                .description("Reissue requests answered with another request's rotation result")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,132 @@
+package com.kb.jwttest.jwt;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * username -> revoked-before 시각(epoch millis) 맵. 요청마다 읽히므로 박싱 없이 long 배열 하나에 [키, 값] 쌍을 선형 탐사로 담는다.
+ * 키는 username의 64비트 해시이고 0은 빈 칸이다. 해시가 겹친 다른 사용자는 같이 폐기된 것으로 보이지만 64비트라 무시할 수 있다.
+ * <p>
+ * 읽기는 잠금 없이 volatile 테이블 참조와 acquire 읽기만 한다. 드문 쓰기는 이 객체의 모니터로 직렬화하고,
+ * 값은 커지는 방향으로만 바꾸며, 칸을 비우는 대신 살아 있는 항목만 새 테이블에 옮겨 참조를 바꾼다.
+ */
+public final class RevokedBeforeMap {
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final long EMPTY = 0;
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private volatile long[] table = new long[MIN_CAPACITY << 1];
+    private volatile int size;
+
+    /**
+     * 사용자의 revoked-before 시각. 없으면 0이다.
+     */
+    public long get(String username) {
+        long key = hash(username);
+        long[] table = this.table;
+        int mask = (table.length >> 1) - 1;
+
+        for (int slot = (int) key & mask; ; slot = (slot + 1) & mask) {
+            long current = (long) SLOTS.getAcquire(table, slot << 1);
+            if (current == key)
+                return (long) SLOTS.getAcquire(table, (slot << 1) + 1);
+            if (current == EMPTY)
+                return 0;
+        }
+    }
+
+    /**
+     * 사용자의 revoked-before 시각을 revokedBefore로 올린다. 이미 같거나 늦은 시각이면 false를 반환한다.
+     */
+    public synchronized boolean raise(String username, long revokedBefore) {
+        long key = hash(username);
+        long[] table = this.table;
+        int mask = (table.length >> 1) - 1;
+
+        for (int slot = (int) key & mask; ; slot = (slot + 1) & mask) {
+            long current = table[slot << 1];
+            if (current == key) {
+                if (table[(slot << 1) + 1] >= revokedBefore)
+                    return false;
+                SLOTS.setRelease(table, (slot << 1) + 1, revokedBefore);
+                return true;
+            }
+
+            if (current == EMPTY) {
+                // 값을 먼저 쓰고 키를 쓴다. 키를 본 reader는 값도 본다.
+                SLOTS.setRelease(table, (slot << 1) + 1, revokedBefore);
+                SLOTS.setRelease(table, slot << 1, key);
+                if (++size > (table.length >> 2))
+                    this.table = copy(table, table.length, Long.MIN_VALUE);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * cutoff 이전의 시각을 지우고, 남은 항목 수에 맞는 크기의 테이블로 바꾼다. 지운 항목 수를 반환한다.
+     */
+    public synchronized int removeOlderThan(long cutoff) {
+        long[] table = this.table;
+        int live = 0;
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != EMPTY && table[i + 1] >= cutoff)
+                live++;
+        }
+
+        int removed = size - live;
+        if (removed == 0)
+            return 0;
+
+        int capacity = Math.max(Integer.highestOneBit(Math.max(live, 1)) << 2, MIN_CAPACITY);
+        this.table = copy(table, capacity, cutoff);
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 새 테이블에 옮긴 뒤 volatile 참조로 내보내므로 reader는 옮기기 전이나 후의 온전한 테이블만 본다.
+     */
+    private long[] copy(long[] from, int capacity, long cutoff) {
+        long[] to = new long[capacity << 1];
+        int mask = capacity - 1;
+        int copied = 0;
+
+        for (int i = 0; i < from.length; i += 2) {
+            long key = from[i];
+            if (key == EMPTY || from[i + 1] < cutoff)
+                continue;
+
+            int slot = (int) key & mask;
+            while (to[slot << 1] != EMPTY)
+                slot = (slot + 1) & mask;
+            to[slot << 1] = key;
+            to[(slot << 1) + 1] = from[i + 1];
+            copied++;
+        }
+
+        size = copied;
+        return to;
+    }
+
+    /**
+     * FNV-1a 64비트에 murmur3 fmix64를 더해 하위 비트까지 고르게 섞는다. 0은 빈 칸이므로 1로 바꾼다.
+     */
+    static long hash(String username) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < username.length(); i++) {
+            h ^= username.charAt(i);
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == EMPTY ? 1 : h;
+    }
+}
@@ -0,0 +1,207 @@
+package com.kb.jwttest.jwt;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.InvalidKeyException;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.SecretKey;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 비대칭 서명(ES256, EdDSA) 키 묶음. 서명은 activeKid 키 하나로 하고, 검증은 헤더의 kid로 키를 찾는다.
+ * <p>
+ * 키를 교체할 때는 새 키를 추가하고 activeKid를 바꾼 뒤, 이전 키로 발급된 토큰이 모두 만료될 때까지 이전 키(공개키만)를 남겨 둔다.
+ * 검증 키는 kid로 바로 찾도록 맵에 들고 있고, 공개키는 {@link #jwks()}로 내보내서 다른 서비스가 secret 없이 검증할 수 있게 한다.
+ */
+@Slf4j
+public class SigningKeyRing extends LocatorAdapter<Key> {
+    private static final String HS256 = "HS256";
+
+    private final String algorithmId;
+    private final SignatureAlgorithm algorithm;
+    private final String activeKid;
+    private final PrivateKey signingKey;
+    private final Map<String, PublicKey> verificationKeys;
+    private final SecretKey legacyKey;
+
+    public SigningKeyRing(String algorithmId, String activeKid, PrivateKey signingKey, Map<String, PublicKey> verificationKeys, SecretKey legacyKey) {
+        this.algorithmId = algorithmId;
+        this.algorithm = signatureAlgorithm(algorithmId);
+        this.activeKid = activeKid;
+        this.signingKey = signingKey;
+        this.verificationKeys = new ConcurrentHashMap<>(verificationKeys);
+        this.legacyKey = legacyKey;
+    }
+
+    /**
+     * 설정에서 키를 읽는다. 키가 하나도 없으면 이 인스턴스에서만 쓰는 임시 키를 만든다(재시작하면 기존 토큰은 무효가 된다).
+     */
+    public static SigningKeyRing from(JwtSigningProperties properties, SecretKey secretKey) {
+        String algorithmId = properties.algorithm();
+        SecretKey legacyKey = properties.acceptHs256() ? secretKey : null;
+
+        if (properties.keys().isEmpty()) {
+            KeyPair keyPair = generateKeyPair(algorithmId);
+            String kid = UUID.randomUUID().toString();
+            log.warn("jwt.signing.keys is empty. generated an ephemeral {} key (kid={}) for this instance only", algorithmId, kid);
+            return new SigningKeyRing(algorithmId, kid, keyPair.getPrivate(), Map.of(kid, keyPair.getPublic()), legacyKey);
+        }
+
+        Map<String, PublicKey> verificationKeys = new LinkedHashMap<>();
+        PrivateKey signingKey = null;
+        for (JwtSigningProperties.Key key : properties.keys()) {
+            verificationKeys.put(key.kid(), publicKey(algorithmId, key.publicKey()));
+            if (key.kid().equals(properties.activeKid()))
+                signingKey = privateKey(algorithmId, key.privateKey());
+        }
+
+        if (signingKey == null)
+            throw new IllegalStateException("private key for jwt.signing.activeKid is not configured: " + properties.activeKid());
+
+        return new SigningKeyRing(algorithmId, properties.activeKid(), signingKey, verificationKeys, legacyKey);
+    }
+
+    public static KeyPair generateKeyPair(String algorithmId) {
+        try {
+            if ("ES256".equalsIgnoreCase(algorithmId)) {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+                return generator.generateKeyPair();
+            }
+            return KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public String getActiveKid() {
+        return activeKid;
+    }
+
+    public PrivateKey getSigningKey() {
+        return signingKey;
+    }
+
+    public SignatureAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+
+        if (kid == null) {
+            if (legacyKey != null && HS256.equals(header.getAlgorithm()))
+                return legacyKey;
+            throw new InvalidKeyException("token has no kid");
+        }
+
+        PublicKey key = verificationKeys.get(kid);
+        if (key == null)
+            throw new InvalidKeyException("unknown kid: " + kid);
+        return key;
+    }
+
+    /**
+     * 검증 키 전체의 JWK 목록(RFC 7517). 공개키만 포함한다.
+     */
+    public List<Map<String, String>> jwks() {
+        return verificationKeys.entrySet().stream()
+                .map(entry -> jwk(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    private Map<String, String> jwk(String kid, PublicKey publicKey) {
+        Map<String, String> jwk = new LinkedHashMap<>();
+
+        if (publicKey instanceof ECPublicKey ecPublicKey) {
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("x", base64Url(unsigned(ecPublicKey.getW().getAffineX(), 32)));
+            jwk.put("y", base64Url(unsigned(ecPublicKey.getW().getAffineY(), 32)));
+        } else {
+            // Ed25519 X.509 인코딩은 12바이트 헤더 뒤에 32바이트 공개키가 붙는다.
+            byte[] encoded = publicKey.getEncoded();
+            jwk.put("kty", "OKP");
+            jwk.put("crv", "Ed25519");
+            jwk.put("x", base64Url(Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
+        }
+
+        jwk.put("kid", kid);
+        jwk.put("use", "sig");
+        jwk.put("alg", algorithmId);
+        return jwk;
+    }
+
+    private static SignatureAlgorithm signatureAlgorithm(String algorithmId) {
+        if ("ES256".equalsIgnoreCase(algorithmId))
+            return Jwts.SIG.ES256;
+        if ("EdDSA".equalsIgnoreCase(algorithmId))
+            return Jwts.SIG.EdDSA;
+        throw new IllegalArgumentException("unsupported jwt.signing.algorithm: " + algorithmId);
+    }
+
+    private static PublicKey publicKey(String algorithmId, String encoded) {
+        try {
+            return keyFactory(algorithmId).generatePublic(new X509EncodedKeySpec(decode(encoded)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("invalid public key", e);
+        }
+    }
+
+    private static PrivateKey privateKey(String algorithmId, String encoded) {
+        if (encoded == null || encoded.isBlank())
+            return null;
+
+        try {
+            return keyFactory(algorithmId).generatePrivate(new PKCS8EncodedKeySpec(decode(encoded)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("invalid private key", e);
+        }
+    }
+
+    private static KeyFactory keyFactory(String algorithmId) throws GeneralSecurityException {
+        return KeyFactory.getInstance("ES256".equalsIgnoreCase(algorithmId) ? "EC" : "Ed25519");
+    }
+
+    /**
+     * PEM 헤더/푸터와 공백을 떼고 Base64를 디코딩한다.
+     */
+    private static byte[] decode(String encoded) {
+        String base64 = encoded.replaceAll("-----[A-Z ]+-----", "").replaceAll("\\s", "");
+        return Base64.getDecoder().decode(base64);
+    }
+
+    private static byte[] unsigned(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        byte[] result = new byte[length];
+        int copy = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - copy, result, length - copy, copy);
+        return result;
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
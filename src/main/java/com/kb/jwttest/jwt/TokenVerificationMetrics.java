@@ -0,0 +1,60 @@
+package com.kb.jwttest.jwt;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.security.SecurityException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 토큰 검증 시간({@code auth.token.verify})과 거절 사유별 횟수({@code auth.token.rejected}). category(access/refresh)마다 하나씩 둔다.
+ * 미터는 생성할 때 모두 등록해 두고, 요청 경로에서는 배열 조회와 기록만 한다.
+ */
+class TokenVerificationMetrics {
+    enum Rejection {
+        EXPIRED, WRONG_CATEGORY, INVALID_SIGNATURE, MALFORMED, NOT_FOUND, REUSE_DETECTED, REVOKED
+    }
+
+    private final Timer verifyTime;
+    private final Counter[] rejections = new Counter[Rejection.values().length];
+
+    TokenVerificationMetrics(MeterRegistry meterRegistry, String category) {
+        this.verifyTime = Timer.builder("auth.token.verify")
+                .description("Time spent parsing and verifying a token")
+                .tag("category", category)
+                .register(meterRegistry);
+
+        for (Rejection rejection : Rejection.values()) {
+            rejections[rejection.ordinal()] = Counter.builder("auth.token.rejected")
+                    .description("Tokens rejected, by reason")
+                    .tag("category", category)
+                    .tag("reason", rejection.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * {@link JwtUtils#verify(String)}를 호출하면서 시간을 재고, 서명/형식 오류는 사유를 세고 그대로 다시 던진다.
+     */
+    VerifiedToken verify(JwtUtils jwtUtils, String token) {
+        long start = System.nanoTime();
+        try {
+            return jwtUtils.verify(token);
+        } catch (SecurityException e) {
+            reject(Rejection.INVALID_SIGNATURE);
+            throw e;
+        } catch (JwtException | IllegalArgumentException e) {
+            reject(Rejection.MALFORMED);
+            throw e;
+        } finally {
+            verifyTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void reject(Rejection rejection) {
+        rejections[rejection.ordinal()].increment();
+    }
+}
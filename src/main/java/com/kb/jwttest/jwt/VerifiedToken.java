@@ -0,0 +1,36 @@
+package com.kb.jwttest.jwt;
+
+/**
+ * 서명 검증을 마친 토큰의 클레임. 한 번 파싱한 결과를 필터/서비스에서 재사용한다.
+ *
+ * @param familyId   refresh token family id. 한 번의 로그인에서 시작해 교체될 때마다 이어지는 토큰들이 같은 값을 가진다. access token이나 이전에 발급된 토큰은 null
+ * @param issuedAt   발급 시각 (epoch millis)
+ * @param expiration 만료 시각 (epoch millis)
+ */
+public record VerifiedToken(
+        String category,
+        String username,
+        String role,
+        String familyId,
+        long issuedAt,
+        long expiration
+) {
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+
+    public VerifiedToken(String category, String username, String role, long issuedAt, long expiration) {
+        this(category, username, role, null, issuedAt, expiration);
+    }
+
+    public boolean isExpired() {
+        return expiration < System.currentTimeMillis();
+    }
+
+    public boolean isAccessToken() {
+        return ACCESS.equals(category);
+    }
+
+    public boolean isRefreshToken() {
+        return REFRESH.equals(category);
+    }
+}
@@ -0,0 +1,77 @@
+package com.kb.jwttest.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 서명 검증을 마친 토큰을 서명 세그먼트 기준으로 보관하는 캐시.
+ * 크기 제한이 있고, 각 엔트리는 토큰의 exp 시점에 만료된다.
+ */
+public class VerifiedTokenCache {
+    private final Cache<String, Entry> cache;
+
+    public VerifiedTokenCache(long maximumSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new ExpireAtTokenExpiration())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 같은 서명으로 캐싱된 토큰이 있고 원문까지 일치할 때만 반환한다. 헤더/페이로드가 바뀐 토큰은 캐시에서 응답하지 않는다.
+     */
+    public VerifiedToken get(String token) {
+        Entry entry = cache.getIfPresent(signatureOf(token));
+
+        if (entry == null || !entry.token().equals(token) || entry.verifiedToken().isExpired())
+            return null;
+
+        return entry.verifiedToken();
+    }
+
+    public void put(String token, VerifiedToken verifiedToken) {
+        if (verifiedToken.isExpired())
+            return;
+
+        cache.put(signatureOf(token), new Entry(token, verifiedToken));
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private static String signatureOf(String token) {
+        return token.substring(token.lastIndexOf('.') + 1);
+    }
+
+    private record Entry(String token, VerifiedToken verifiedToken) {
+    }
+
+    private static class ExpireAtTokenExpiration implements Expiry<String, Entry> {
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            long remainingMs = entry.verifiedToken().expiration() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,736 @@
+package com.kb.jwttest.memory;
+
+import com.kb.jwttest.redis.RefreshTokenIds;
+import com.kb.jwttest.redis.RefreshTokenSession;
+import com.kb.jwttest.redis.RefreshTokenStore;
+import com.kb.jwttest.redis.RotationResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Redis 없이 한 노드 안에서만 쓰는 refresh token 저장소. 단일 노드 배포와 테스트용이다.
+ * <p>
+ * 토큰, family, 사용자 세션 인덱스를 STRIPES개의 stripe에 나눠 담고, 각 키는 해시로 stripe를 고른다. 연산은 건드리는 키의 stripe만
+ * 인덱스 순서대로 잠그므로 서로 다른 사용자의 요청은 거의 부딪히지 않는다. 재사용 감지로 family 전체를 폐기할 때만 모든 stripe를 잠근다.
+ * 가상 스레드가 캐리어에 고정되지 않도록 synchronized 대신 ReentrantLock을 쓴다.
+ * <p>
+ * 만료는 {@link TimerWheel}이 tick마다 처리하고, 조회할 때도 만료 시각을 다시 확인한다. 세션과 family는 각자 만료 예약을 하나씩 갖고,
+ * 교체/폐기/내보내기로 빠질 때 예약을 취소하므로 휠이 붙잡는 항목은 저장소에 남은 세션과 family 수를 넘지 않는다.
+ * stripe마다 maxSessions / STRIPES개까지만 담고, 넘치면 그 stripe에서 가장 먼저 저장된 세션을 내보낸다. 내보낸 세션의 family/사용자 인덱스는 다음 tick에 정리한다.
+ * 교체/재사용 판단은 rotate-refresh-token.lua와 같다.
+ * <p>
+ * {@link RefreshTokenJournal}을 주면 변경을 같은 잠금 안에서 저널에 쓰고, 잠금을 놓은 뒤 fsync를 기다린다. 생성할 때 스냅샷과 저널로 상태를 복구한다.
+ * 만료는 기록하지 않고 복구할 때 만료 시각으로 다시 거른다.
+ */
+public class InMemoryRefreshTokenStore implements RefreshTokenStore, AutoCloseable {
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+    private static final int WHEEL_SIZE = 4096;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long rotationGraceMs;
+    private final TimerWheel<Session> expirations;
+    private final Queue<Session> evicted = new ConcurrentLinkedQueue<>();
+    private final Counter evictedByCapacity;
+    private final Counter expired;
+    /**
+     * 복구가 끝난 뒤에 채운다. 복구 중의 변경은 다시 기록하지 않는다.
+     */
+    private volatile RefreshTokenJournal journal;
+
+    public InMemoryRefreshTokenStore(long maxSessions, long rotationGraceMs, Duration tick, MeterRegistry meterRegistry) {
+        this(maxSessions, rotationGraceMs, tick, null, meterRegistry);
+    }
+
+    /**
+     * @param maxSessions     저장할 세션 수 상한. stripe마다 고르게 나눈다.
+     * @param rotationGraceMs 이미 교체된 토큰이 이 시간 안에 다시 들어오면 재사용이 아니라 동시 교체로 본다.
+     * @param tick            만료 처리 주기. 만료된 세션은 최대 한 tick 늦게 메모리에서 빠진다.
+     * @param journal         null이면 재시작할 때 세션이 모두 사라진다. 저장소를 닫을 때 함께 닫는다.
+     */
+    public InMemoryRefreshTokenStore(long maxSessions, long rotationGraceMs, Duration tick, RefreshTokenJournal journal, MeterRegistry meterRegistry) {
+        int stripeCapacity = (int) Math.max(Math.min(maxSessions / STRIPES, Integer.MAX_VALUE), 1);
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe(stripeCapacity);
+        this.rotationGraceMs = rotationGraceMs;
+
+        this.evictedByCapacity = evictedCounter(meterRegistry, "capacity");
+        this.expired = evictedCounter(meterRegistry, "expired");
+        Gauge.builder("refresh.token.memory.sessions", this, InMemoryRefreshTokenStore::size)
+                .description("Refresh token sessions held in memory")
+                .register(meterRegistry);
+        Gauge.builder("refresh.token.memory.timeouts", this, InMemoryRefreshTokenStore::timeouts)
+                .description("Session and family expirations scheduled in the timer wheel")
+                .register(meterRegistry);
+
+        this.expirations = new TimerWheel<>(tick, WHEEL_SIZE, "refresh-token-expiry", this::expire, this::cleanUpEvicted);
+
+        if (journal != null) {
+            journal.open(new Recovery(), new Snapshot());
+            removeExpiredFamilies();
+            this.journal = journal;
+        }
+    }
+
+    @Override
+    public void save(String refreshToken, String familyId, String username, long expiration) {
+        long now = System.currentTimeMillis();
+        if (expiration <= now)
+            return;
+
+        Session session = new Session(RefreshTokenIds.of(refreshToken), familyId, username, expiration);
+        int[] locked = lock(session.tokenId(), familyId, username);
+        try {
+            issue(session);
+            if (journal != null)
+                journal.append(JournalCodec.issue(session.tokenId(), familyId, username, expiration));
+        } finally {
+            unlock(locked);
+        }
+        syncJournal();
+    }
+
+    @Override
+    public boolean exists(String refreshToken) {
+        String tokenId = RefreshTokenIds.of(refreshToken);
+        Stripe stripe = stripeOf(tokenId);
+
+        stripe.lock.lock();
+        try {
+            Session session = stripe.sessions.get(tokenId);
+            return session != null && session.expiration() > System.currentTimeMillis();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public RotationResult rotate(String oldToken, String newToken, String familyId, String username, long expiration) {
+        String oldTokenId = RefreshTokenIds.of(oldToken);
+        Session next = new Session(RefreshTokenIds.of(newToken), familyId, username, expiration);
+
+        int[] locked = lock(oldTokenId, next.tokenId(), familyId, username);
+        RotationResult result;
+        try {
+            result = rotate(oldTokenId, next, false);
+        } finally {
+            unlock(locked);
+        }
+
+        if (result == null) {
+            // family의 살아 있는 토큰은 어느 stripe에나 있을 수 있으므로 모두 잠그고 처음부터 다시 판단한다.
+            locked = lockAll();
+            try {
+                result = rotate(oldTokenId, next, true);
+            } finally {
+                unlock(locked);
+            }
+        }
+
+        if (result.status() != RotationResult.Status.NOT_FOUND)
+            syncJournal();
+        return result;
+    }
+
+    @Override
+    public boolean delete(String refreshToken) {
+        boolean revoked = revoke(RefreshTokenIds.of(refreshToken));
+        if (revoked)
+            syncJournal();
+        return revoked;
+    }
+
+    @Override
+    public List<RefreshTokenSession> findSessions(String username) {
+        long now = System.currentTimeMillis();
+        Stripe stripe = stripeOf(username);
+        List<RefreshTokenSession> sessions = new ArrayList<>();
+
+        stripe.lock.lock();
+        try {
+            Map<String, Long> tokens = stripe.users.get(username);
+            if (tokens != null) {
+                tokens.forEach((tokenId, expiration) -> {
+                    if (expiration > now)
+                        sessions.add(new RefreshTokenSession(tokenId, expiration));
+                });
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        sessions.sort(Comparator.comparingLong(RefreshTokenSession::expiration));
+        return sessions;
+    }
+
+    @Override
+    public List<String> revokeAll(String username) {
+        return revokeTokenIds(tokenIdsOf(username));
+    }
+
+    @Override
+    public List<String> revokeUsers(List<String> usernames) {
+        List<String> tokenIds = new ArrayList<>();
+        for (String username : usernames)
+            tokenIds.addAll(tokenIdsOf(username));
+        return revokeTokenIds(tokenIds);
+    }
+
+    /**
+     * 토큰마다 저널에 기록하고, fsync는 마지막에 한 번만 기다린다.
+     */
+    @Override
+    public List<String> revokeTokenIds(List<String> tokenIds) {
+        List<String> revoked = new ArrayList<>();
+        for (String tokenId : tokenIds) {
+            if (revoke(tokenId))
+                revoked.add(tokenId);
+        }
+
+        if (!revoked.isEmpty())
+            syncJournal();
+        return revoked;
+    }
+
+    @Override
+    public void close() {
+        expirations.close();
+        if (journal != null)
+            journal.close();
+    }
+
+    /**
+     * 저널 세그먼트를 넘기고 지금 상태의 스냅샷을 바로 쓴다.
+     */
+    void snapshot() throws IOException {
+        journal.snapshot(new Snapshot());
+    }
+
+    long timeouts() {
+        return expirations.size();
+    }
+
+    long size() {
+        long size = 0;
+        for (Stripe stripe : stripes)
+            size += stripe.sessions.size();
+        return size;
+    }
+
+    /**
+     * 필요한 stripe가 모두 잠긴 상태에서 호출한다. 재사용을 감지했는데 allLocked가 아니면 아무것도 바꾸지 않고 null을 반환한다.
+     */
+    private RotationResult rotate(String oldTokenId, Session next, boolean allLocked) {
+        long now = System.currentTimeMillis();
+        Stripe oldStripe = stripeOf(oldTokenId);
+        Family family = stripeOf(next.familyId()).families.get(next.familyId());
+
+        Session old = oldStripe.sessions.get(oldTokenId);
+        if (old != null && old.expiration() > now) {
+            oldStripe.sessions.remove(oldTokenId);
+            old.cancelExpiration();
+            removeFromUser(old);
+            if (family == null)
+                family = newFamily(next.familyId());
+            family.live.remove(oldTokenId);
+            family.rotated.put(oldTokenId, now);
+            issue(next);
+            if (journal != null) {
+                journal.append(JournalCodec.retire(oldTokenId, next.familyId(), now));
+                journal.append(JournalCodec.issue(next.tokenId(), next.familyId(), next.username(), next.expiration()));
+            }
+            return RotationResult.ROTATED;
+        }
+
+        Long rotatedAt = family != null ? family.rotated.get(oldTokenId) : null;
+        if (rotatedAt == null)
+            return RotationResult.NOT_FOUND;
+
+        if (now - rotatedAt <= rotationGraceMs) {
+            // 교체 직후 로그아웃/폐기된 family는 grace window 안이라도 새 토큰을 만들지 않는다.
+            if (family.live.isEmpty())
+                return RotationResult.NOT_FOUND;
+            issue(next);
+            if (journal != null)
+                journal.append(JournalCodec.issue(next.tokenId(), next.familyId(), next.username(), next.expiration()));
+            return RotationResult.CONCURRENT;
+        }
+
+        if (!allLocked)
+            return null;
+
+        List<String> revoked = revokeFamily(next.familyId(), now);
+        if (journal != null)
+            journal.append(JournalCodec.revokeFamily(next.familyId()));
+        return RotationResult.reuseDetected(revoked);
+    }
+
+    /**
+     * 모든 stripe가 잠긴 상태에서 호출한다. family의 살아 있는 토큰과 family를 지우고, 만료 전이던 토큰 id를 반환한다.
+     */
+    private List<String> revokeFamily(String familyId, long now) {
+        Family family = removeFamily(familyId);
+        if (family == null)
+            return List.of();
+
+        List<String> revoked = new ArrayList<>();
+        for (String tokenId : family.live) {
+            Session session = stripeOf(tokenId).sessions.remove(tokenId);
+            if (session == null)
+                continue;
+            session.cancelExpiration();
+            removeFromUser(session);
+            if (session.expiration() > now)
+                revoked.add(tokenId);
+        }
+        return revoked;
+    }
+
+    /**
+     * 토큰, family, 사용자 stripe가 잠긴 상태에서 호출한다.
+     */
+    private void issue(Session session) {
+        Session replaced = stripeOf(session.tokenId()).sessions.put(session.tokenId(), session);
+        if (replaced != null)
+            replaced.cancelExpiration();
+        stripeOf(session.username()).users
+                .computeIfAbsent(session.username(), username -> new HashMap<>())
+                .put(session.tokenId(), session.expiration());
+
+        Family family = familyOf(session.familyId());
+        family.live.add(session.tokenId());
+        extend(session.familyId(), family, session.expiration());
+
+        session.timeout = expirations.schedule(session, session.expiration());
+    }
+
+    /**
+     * family stripe가 잠긴 상태에서 호출한다. family의 만료 시각이 늦춰지면 만료 예약을 새로 건다.
+     */
+    private void extend(String familyId, Family family, long expiration) {
+        if (expiration <= family.expiration)
+            return;
+
+        family.expiration = expiration;
+        if (family.timeout != null)
+            family.timeout.cancel();
+        family.timeout = expirations.schedule(Session.familyOnly(familyId, expiration), expiration);
+    }
+
+    /**
+     * family stripe가 잠긴 상태에서 호출한다.
+     */
+    private Family removeFamily(String familyId) {
+        Family family = stripeOf(familyId).families.remove(familyId);
+        if (family != null && family.timeout != null)
+            family.timeout.cancel();
+        return family;
+    }
+
+    /**
+     * family와 사용자 stripe는 세션을 읽어야 알 수 있으므로, 먼저 토큰 stripe에서 세션을 찾고 세 stripe를 잠근 뒤 그대로인지 다시 확인한다.
+     */
+    private boolean revoke(String tokenId) {
+        Session session = find(tokenId);
+        if (session == null)
+            return false;
+
+        int[] locked = lock(tokenId, session.familyId(), session.username());
+        try {
+            if (!stripeOf(tokenId).sessions.remove(tokenId, session))
+                return false;
+            session.cancelExpiration();
+            removeFromUser(session);
+            removeFromFamily(session);
+            if (journal != null)
+                journal.append(JournalCodec.revoke(tokenId));
+            return session.expiration() > System.currentTimeMillis();
+        } finally {
+            unlock(locked);
+        }
+    }
+
+    /**
+     * 만료 시각이 된 세션을 지운다. 그 세션이 family에서 가장 늦게 만료되는 토큰이었다면 family도 함께 지운다.
+     */
+    private void expire(Session session) {
+        long now = System.currentTimeMillis();
+        int[] locked = lock(session.tokenId(), session.familyId(), session.username());
+        try {
+            if (stripeOf(session.tokenId()).sessions.remove(session.tokenId(), session)) {
+                removeFromUser(session);
+                removeFromFamily(session);
+                expired.increment();
+            }
+
+            Family family = stripeOf(session.familyId()).families.get(session.familyId());
+            if (family != null && family.expiration <= now)
+                removeFamily(session.familyId());
+        } finally {
+            unlock(locked);
+        }
+    }
+
+    private void cleanUpEvicted() {
+        Session session;
+        while ((session = evicted.poll()) != null) {
+            int[] locked = lock(session.tokenId(), session.familyId(), session.username());
+            try {
+                // 같은 토큰이 다시 저장됐다면 인덱스는 새 세션의 것이다.
+                if (!stripeOf(session.tokenId()).sessions.containsKey(session.tokenId())) {
+                    removeFromUser(session);
+                    removeFromFamily(session);
+                }
+            } finally {
+                unlock(locked);
+            }
+        }
+    }
+
+    private List<String> tokenIdsOf(String username) {
+        Stripe stripe = stripeOf(username);
+        stripe.lock.lock();
+        try {
+            Map<String, Long> tokens = stripe.users.get(username);
+            return tokens != null ? new ArrayList<>(tokens.keySet()) : List.of();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * 복구한 family 중 만료 시각을 알 수 없거나 이미 지난 것을 지운다. 나머지는 복구하면서 만료를 예약했다.
+     */
+    private void removeExpiredFamilies() {
+        long now = System.currentTimeMillis();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.families.values().removeIf(family -> {
+                    if (family.expiration > now)
+                        return false;
+                    if (family.timeout != null)
+                        family.timeout.cancel();
+                    return true;
+                });
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private void syncJournal() {
+        if (journal != null)
+            journal.sync();
+    }
+
+    private Family familyOf(String familyId) {
+        Family family = stripeOf(familyId).families.get(familyId);
+        return family != null ? family : newFamily(familyId);
+    }
+
+    private Session find(String tokenId) {
+        Stripe stripe = stripeOf(tokenId);
+        stripe.lock.lock();
+        try {
+            return stripe.sessions.get(tokenId);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private Family newFamily(String familyId) {
+        Family family = new Family();
+        stripeOf(familyId).families.put(familyId, family);
+        return family;
+    }
+
+    private void removeFromUser(Session session) {
+        Map<String, Map<String, Long>> users = stripeOf(session.username()).users;
+        Map<String, Long> tokens = users.get(session.username());
+        if (tokens == null)
+            return;
+        tokens.remove(session.tokenId());
+        if (tokens.isEmpty())
+            users.remove(session.username());
+    }
+
+    /**
+     * 살아 있는 토큰도 교체 기록도 남지 않은 family는 재사용 판단에 쓸 것이 없으므로 만료를 기다리지 않고 지운다.
+     */
+    private void removeFromFamily(Session session) {
+        Family family = stripeOf(session.familyId()).families.get(session.familyId());
+        if (family == null)
+            return;
+        family.live.remove(session.tokenId());
+        if (family.live.isEmpty() && family.rotated.isEmpty())
+            removeFamily(session.familyId());
+    }
+
+    private Stripe stripeOf(String key) {
+        return stripes[indexOf(key)];
+    }
+
+    /**
+     * stripe 안의 HashMap은 해시의 낮은 비트로 버킷을 고르므로, stripe는 섞은 해시의 높은 비트로 고른다.
+     * 같은 비트를 쓰면 한 stripe의 키가 버킷의 1/STRIPES에만 몰린다.
+     */
+    private static int indexOf(String key) {
+        return (key.hashCode() * 0x9E3779B9) >>> (Integer.SIZE - STRIPE_BITS);
+    }
+
+    /**
+     * 교착을 피하기 위해 항상 stripe 인덱스 오름차순으로 잠근다.
+     */
+    private int[] lock(String... keys) {
+        int[] indexes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            indexes[i] = indexOf(keys[i]);
+        indexes = Arrays.stream(indexes).sorted().distinct().toArray();
+
+        for (int index : indexes)
+            stripes[index].lock.lock();
+        return indexes;
+    }
+
+    private int[] lockAll() {
+        int[] indexes = new int[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            indexes[i] = i;
+            stripes[i].lock.lock();
+        }
+        return indexes;
+    }
+
+    private void unlock(int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--)
+            stripes[indexes[i]].lock.unlock();
+    }
+
+    private static Counter evictedCounter(MeterRegistry meterRegistry, String cause) {
+        return Counter.builder("refresh.token.memory.evicted")
+                .description("Refresh token sessions removed from memory, by cause")
+                .tag("cause", cause)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 같은 토큰 id로 다시 저장된 세션과 구분해야 하므로 equals는 객체 동일성을 쓴다.
+     */
+    private static final class Session {
+        private final String tokenId;
+        private final String familyId;
+        private final String username;
+        private final long expirationMs;
+        /**
+         * 토큰 stripe가 잠긴 상태에서만 바꾼다.
+         */
+        private TimerWheel<Session>.Timeout timeout;
+
+        private Session(String tokenId, String familyId, String username, long expirationMs) {
+            this.tokenId = tokenId;
+            this.familyId = familyId;
+            this.username = username;
+            this.expirationMs = expirationMs;
+        }
+
+        /**
+         * family의 만료만 예약하기 위한 빈 세션. 저장소에 들어가지 않으므로 만료될 때 family만 확인한다.
+         */
+        static Session familyOnly(String familyId, long expiration) {
+            return new Session("", familyId, "", expiration);
+        }
+
+        String tokenId() {
+            return tokenId;
+        }
+
+        String familyId() {
+            return familyId;
+        }
+
+        String username() {
+            return username;
+        }
+
+        long expiration() {
+            return expirationMs;
+        }
+
+        /**
+         * 토큰 stripe가 잠긴 상태에서 호출한다.
+         */
+        void cancelExpiration() {
+            if (timeout != null)
+                timeout.cancel();
+            timeout = null;
+        }
+    }
+
+    /**
+     * family 해시와 같다. live = t:{id}, rotated = r:{id}(값은 교체 시각). 가장 늦게 만료되는 토큰과 함께 사라진다.
+     * rotated는 교체된 순서대로 최근 {@link RefreshTokenStore#MAX_ROTATED_TOKENS}개만 남긴다.
+     */
+    private static class Family {
+        private final Set<String> live = new HashSet<>();
+        private final Map<String, Long> rotated = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > MAX_ROTATED_TOKENS;
+            }
+        };
+        private long expiration;
+        private TimerWheel<Session>.Timeout timeout;
+    }
+
+    private class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Family> families = new HashMap<>();
+        private final Map<String, Map<String, Long>> users = new HashMap<>();
+        private final LinkedHashMap<String, Session> sessions;
+
+        private Stripe(int capacity) {
+            this.sessions = new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                    if (size() <= capacity)
+                        return false;
+                    eldest.getValue().cancelExpiration();
+                    evicted.add(eldest.getValue());
+                    evictedByCapacity.increment();
+                    // 복구할 때 다시 살아나지 않도록 폐기로 기록한다.
+                    if (journal != null)
+                        journal.append(JournalCodec.revoke(eldest.getKey()));
+                    return true;
+                }
+            };
+        }
+    }
+
+    /**
+     * 저널 레코드를 저장소에 다시 적용한다. 이미 만료된 세션과 family는 건너뛴다.
+     */
+    private class Recovery implements JournalCodec.Events {
+        private final long now = System.currentTimeMillis();
+
+        @Override
+        public void issue(String tokenId, String familyId, String username, long expiration) {
+            if (expiration <= now)
+                return;
+
+            int[] locked = lock(tokenId, familyId, username);
+            try {
+                InMemoryRefreshTokenStore.this.issue(new Session(tokenId, familyId, username, expiration));
+            } finally {
+                unlock(locked);
+            }
+        }
+
+        @Override
+        public void retire(String tokenId, String familyId, long rotatedAt) {
+            Session old = find(tokenId);
+            int[] locked = old != null ? lock(tokenId, familyId, old.username()) : lock(tokenId, familyId);
+            try {
+                if (old != null && stripeOf(tokenId).sessions.remove(tokenId, old)) {
+                    old.cancelExpiration();
+                    removeFromUser(old);
+                }
+
+                Family family = familyOf(familyId);
+                family.live.remove(tokenId);
+                family.rotated.put(tokenId, rotatedAt);
+            } finally {
+                unlock(locked);
+            }
+        }
+
+        @Override
+        public void revoke(String tokenId) {
+            InMemoryRefreshTokenStore.this.revoke(tokenId);
+        }
+
+        @Override
+        public void revokeFamily(String familyId) {
+            int[] locked = lockAll();
+            try {
+                InMemoryRefreshTokenStore.this.revokeFamily(familyId, now);
+            } finally {
+                unlock(locked);
+            }
+        }
+
+        @Override
+        public void rotated(String familyId, long familyExpiration, String tokenId, long rotatedAt) {
+            if (familyExpiration <= now)
+                return;
+
+            int[] locked = lock(familyId);
+            try {
+                Family family = familyOf(familyId);
+                family.rotated.put(tokenId, rotatedAt);
+                extend(familyId, family, familyExpiration);
+            } finally {
+                unlock(locked);
+            }
+        }
+    }
+
+    /**
+     * stripe 하나를 잠근 채로 복사만 하고, 인코딩과 파일 쓰기는 잠금 밖에서 한다.
+     */
+    private class Snapshot implements RefreshTokenJournal.SnapshotSource {
+        @Override
+        public int sections() {
+            return STRIPES;
+        }
+
+        @Override
+        public void dump(int section, Consumer<ByteBuffer> records) {
+            Stripe stripe = stripes[section];
+            List<Session> sessions;
+            List<RotatedTokens> families = new ArrayList<>();
+
+            stripe.lock.lock();
+            try {
+                sessions = new ArrayList<>(stripe.sessions.values());
+                stripe.families.forEach((familyId, family) -> {
+                    if (!family.rotated.isEmpty())
+                        families.add(new RotatedTokens(familyId, family.expiration, new LinkedHashMap<>(family.rotated)));
+                });
+            } finally {
+                stripe.lock.unlock();
+            }
+
+            long now = System.currentTimeMillis();
+            for (Session session : sessions) {
+                if (session.expiration() > now)
+                    records.accept(JournalCodec.issue(session.tokenId(), session.familyId(), session.username(), session.expiration()));
+            }
+            for (RotatedTokens family : families) {
+                family.rotated().forEach((tokenId, rotatedAt) ->
+                        records.accept(JournalCodec.rotated(family.familyId(), family.expiration(), tokenId, rotatedAt)));
+            }
+        }
+    }
+
+    private record RotatedTokens(String familyId, long expiration, Map<String, Long> rotated) {
+    }
+}
@@ -0,0 +1,51 @@
+package com.kb.jwttest.memory;
+
+import com.kb.jwttest.jwt.LocalAccessTokenRevocations;
+import com.kb.jwttest.security.UserDetailsCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * jwt.store.type=memory이면 Redis 대신 노드 로컬 저장소를 쓴다. 여러 노드가 세션을 공유하지 않으므로 단일 노드 배포와 테스트에서만 쓴다.
+ * jwt.store.memory.persistence.enabled이면 변경을 디렉터리에 저널로 남기고 재시작할 때 복구한다.
+ * access token 폐기 목록도 노드 로컬에만 두며 재시작하면 비워진다. 사용자 캐시 무효화도 다른 노드에 알리지 않는다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "jwt.store.type", havingValue = "memory")
+public class InMemoryStoreConfig {
+    @Bean(destroyMethod = "close")
+    public InMemoryRefreshTokenStore inMemoryRefreshTokenStore(MeterRegistry meterRegistry,
+                                                               @Value("${jwt.store.memory.maxSessions:1000000}") long maxSessions,
+                                                               @Value("${jwt.store.memory.tickMs:1000}") long tickMs,
+                                                               @Value("${jwt.rotation.graceMs:2000}") long rotationGraceMs,
+                                                               @Value("${jwt.store.memory.persistence.enabled:false}") boolean persistent,
+                                                               @Value("${jwt.store.memory.persistence.dir:data/refresh-tokens}") String directory,
+                                                               @Value("${jwt.store.memory.persistence.segmentBytes:67108864}") int segmentBytes,
+                                                               @Value("${jwt.store.memory.persistence.syncOnWrite:true}") boolean syncOnWrite,
+                                                               @Value("${jwt.store.memory.persistence.snapshotThresholdBytes:268435456}") long snapshotThresholdBytes,
+                                                               @Value("${jwt.store.memory.persistence.snapshotCheckMs:10000}") long snapshotCheckMs) {
+        RefreshTokenJournal journal = persistent
+                ? new RefreshTokenJournal(Path.of(directory), segmentBytes, syncOnWrite, snapshotThresholdBytes, Duration.ofMillis(snapshotCheckMs), meterRegistry)
+                : null;
+        return new InMemoryRefreshTokenStore(maxSessions, rotationGraceMs, Duration.ofMillis(tickMs), journal, meterRegistry);
+    }
+
+    @Bean
+    public LocalAccessTokenRevocations localAccessTokenRevocations(MeterRegistry meterRegistry,
+                                                                   @Value("${jwt.accesExpiredMs}") long accessExpiredMs) {
+        return new LocalAccessTokenRevocations(accessExpiredMs, meterRegistry);
+    }
+
+    @Bean
+    public UserDetailsCache userDetailsCache(MeterRegistry meterRegistry,
+                                             @Value("${security.userCache.maxSize:10000}") long maxSize,
+                                             @Value("${security.userCache.ttlMs:60000}") long ttlMs) {
+        return new UserDetailsCache(meterRegistry, maxSize, ttlMs);
+    }
+}
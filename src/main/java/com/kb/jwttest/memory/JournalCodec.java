@@ -0,0 +1,177 @@
+package com.kb.jwttest.memory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * 저널과 스냅샷이 함께 쓰는 레코드 형식. 레코드는 [int 본문 길이][int CRC32C][본문]이고, 본문은 [byte 종류][필드...], 문자열은 [short 길이][UTF-8]이다.
+ * 길이가 0이거나 CRC가 맞지 않는 곳을 끝으로 보므로, 쓰다가 멈춘 마지막 레코드는 복구할 때 버려진다.
+ * <p>
+ * 인코딩 메서드는 스레드마다 하나인 버퍼를 돌려주므로 같은 스레드에서 다음 레코드를 인코딩하기 전에 다 써야 한다.
+ * <p>
+ * 레코드는 연산의 입력이 아니라 결과를 기록한다. 같은 레코드를 두 번 적용해도 상태가 같아서, 스냅샷에 이미 반영된 변경을 저널에서 다시 적용해도 된다.
+ */
+final class JournalCodec {
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private static final byte ISSUE = 1;
+    private static final byte RETIRE = 2;
+    private static final byte REVOKE = 3;
+    private static final byte REVOKE_FAMILY = 4;
+    private static final byte ROTATED = 5;
+    private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(512));
+    private static final ThreadLocal<CRC32C> CRC = ThreadLocal.withInitial(CRC32C::new);
+
+    /**
+     * 복구할 때 레코드를 하나씩 받는 쪽.
+     */
+    interface Events {
+        void issue(String tokenId, String familyId, String username, long expiration);
+
+        /**
+         * 교체되어 사라진 토큰. family에 교체 시각을 남긴다.
+         */
+        void retire(String tokenId, String familyId, long rotatedAt);
+
+        void revoke(String tokenId);
+
+        void revokeFamily(String familyId);
+
+        /**
+         * 스냅샷에만 있다. family에 남아 있는 교체 기록 하나.
+         */
+        void rotated(String familyId, long familyExpiration, String tokenId, long rotatedAt);
+    }
+
+    private JournalCodec() {
+    }
+
+    static ByteBuffer issue(String tokenId, String familyId, String username, long expiration) {
+        byte[] token = utf8(tokenId);
+        byte[] family = utf8(familyId);
+        byte[] user = utf8(username);
+        ByteBuffer frame = begin(ISSUE, token.length + family.length + user.length + 3 * Short.BYTES + Long.BYTES);
+        putString(frame, token);
+        putString(frame, family);
+        putString(frame, user);
+        frame.putLong(expiration);
+        return end(frame);
+    }
+
+    static ByteBuffer retire(String tokenId, String familyId, long rotatedAt) {
+        byte[] token = utf8(tokenId);
+        byte[] family = utf8(familyId);
+        ByteBuffer frame = begin(RETIRE, token.length + family.length + 2 * Short.BYTES + Long.BYTES);
+        putString(frame, token);
+        putString(frame, family);
+        frame.putLong(rotatedAt);
+        return end(frame);
+    }
+
+    static ByteBuffer revoke(String tokenId) {
+        byte[] token = utf8(tokenId);
+        ByteBuffer frame = begin(REVOKE, token.length + Short.BYTES);
+        putString(frame, token);
+        return end(frame);
+    }
+
+    static ByteBuffer revokeFamily(String familyId) {
+        byte[] family = utf8(familyId);
+        ByteBuffer frame = begin(REVOKE_FAMILY, family.length + Short.BYTES);
+        putString(frame, family);
+        return end(frame);
+    }
+
+    static ByteBuffer rotated(String familyId, long familyExpiration, String tokenId, long rotatedAt) {
+        byte[] family = utf8(familyId);
+        byte[] token = utf8(tokenId);
+        ByteBuffer frame = begin(ROTATED, family.length + token.length + 2 * Short.BYTES + 2 * Long.BYTES);
+        putString(frame, family);
+        frame.putLong(familyExpiration);
+        putString(frame, token);
+        frame.putLong(rotatedAt);
+        return end(frame);
+    }
+
+    /**
+     * buffer의 position부터 온전한 레코드를 끝까지 읽어 적용하고, 읽은 레코드 수를 반환한다. position은 마지막 온전한 레코드 뒤에 놓인다.
+     */
+    static long replay(ByteBuffer buffer, Events events) {
+        CRC32C crc = new CRC32C();
+        long records = 0;
+
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            if (length <= 0 || length > buffer.remaining() - HEADER_BYTES)
+                break;
+
+            crc.reset();
+            crc.update(buffer.slice(start + HEADER_BYTES, length));
+            if ((int) crc.getValue() != buffer.getInt(start + Integer.BYTES))
+                break;
+
+            buffer.position(start + HEADER_BYTES);
+            apply(buffer, events);
+            buffer.position(start + HEADER_BYTES + length);
+            records++;
+        }
+
+        return records;
+    }
+
+    private static void apply(ByteBuffer body, Events events) {
+        byte type = body.get();
+        switch (type) {
+            case ISSUE -> events.issue(getString(body), getString(body), getString(body), body.getLong());
+            case RETIRE -> events.retire(getString(body), getString(body), body.getLong());
+            case REVOKE -> events.revoke(getString(body));
+            case REVOKE_FAMILY -> events.revokeFamily(getString(body));
+            case ROTATED -> events.rotated(getString(body), body.getLong(), getString(body), body.getLong());
+            default -> throw new IllegalStateException("unknown journal record type: " + type);
+        }
+    }
+
+    private static ByteBuffer begin(byte type, int fieldBytes) {
+        int size = HEADER_BYTES + 1 + fieldBytes;
+        ByteBuffer frame = SCRATCH.get();
+        if (frame.capacity() < size) {
+            frame = ByteBuffer.allocate(Integer.highestOneBit(size) << 1);
+            SCRATCH.set(frame);
+        }
+
+        frame.clear().position(HEADER_BYTES);
+        frame.put(type);
+        return frame;
+    }
+
+    private static ByteBuffer end(ByteBuffer frame) {
+        int length = frame.position() - HEADER_BYTES;
+        CRC32C crc = CRC.get();
+        crc.reset();
+        crc.update(frame.array(), HEADER_BYTES, length);
+
+        frame.putInt(0, length);
+        frame.putInt(Integer.BYTES, (int) crc.getValue());
+        return frame.flip();
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("journal field is too long: " + bytes.length + " bytes");
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer frame, byte[] value) {
+        frame.putShort((short) value.length);
+        frame.put(value);
+    }
+
+    private static String getString(ByteBuffer body) {
+        byte[] value = new byte[body.getShort()];
+        body.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
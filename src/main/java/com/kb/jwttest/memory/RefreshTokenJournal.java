@@ -0,0 +1,569 @@
+package com.kb.jwttest.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * {@link InMemoryRefreshTokenStore}의 변경을 파일에 남겨서 재시작해도 세션이 유지되게 한다.
+ * <ul>
+ *     <li>journal-{n}.log : 메모리 매핑한 고정 크기 세그먼트. 레코드를 이어서 쓰고, 다 차면 다음 번호의 세그먼트로 넘어간다.</li>
+ *     <li>snapshot-{n}.bin : 세그먼트 n을 시작할 때의 상태. 저장소의 stripe별 구간으로 나눠 쓰고, 복구할 때 구간을 병렬로 읽는다.</li>
+ * </ul>
+ * fsync는 전용 스레드 하나가 한다. 그 스레드가 fsync하는 동안 들어온 레코드는 다음 fsync 한 번에 같이 내려가므로(group commit)
+ * 동시 요청이 많을수록 레코드당 fsync 비용이 줄어든다. syncOnWrite가 false이면 쓰기는 fsync를 기다리지 않고, 장애 시 마지막 fsync 이후의 변경을 잃는다.
+ * fsync가 실패하면 durable 위치를 그대로 두고 다시 시도하며, 그동안 기다리는 쓰기는 예외로 끝난다.
+ * 세그먼트를 넘길 때 쓰는 쪽은 I/O를 하지 않는다. 다 찬 세그먼트의 fsync와 다음 세그먼트 생성은 fsync 스레드가 한다.
+ * 다음 세그먼트를 열지 못해 레코드를 버리면, 스냅샷이 그 변경을 담을 때까지 sync가 예외로 끝나고 다음 스냅샷 확인 때 바로 스냅샷을 쓴다.
+ * <p>
+ * 마지막 스냅샷 이후 쓴 양이 snapshotThresholdBytes를 넘으면 새 스냅샷을 쓰고 그 이전 세그먼트를 지운다. 디스크에 남는 저널은 대략 이 크기로 제한된다.
+ * 스냅샷은 쓰기를 멈추지 않고 stripe를 하나씩 읽으므로 그 사이의 변경이 섞일 수 있지만, 같은 변경이 새 세그먼트에도 있고 레코드는 다시 적용해도 결과가 같다.
+ */
+@Slf4j
+public class RefreshTokenJournal implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int SNAPSHOT_MAGIC = 0x52544B53;
+    private static final int SNAPSHOT_BUFFER_BYTES = 1 << 20;
+    private static final long FSYNC_RETRY_MS = 100;
+
+    /**
+     * 스냅샷으로 내보낼 상태. 구간 하나는 저장소의 stripe 하나다.
+     */
+    interface SnapshotSource {
+        int sections();
+
+        void dump(int section, Consumer<ByteBuffer> records);
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final boolean syncOnWrite;
+    private final long snapshotThresholdBytes;
+    private final Duration snapshotCheckInterval;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appendedChanged = lock.newCondition();
+    private final Condition durableChanged = lock.newCondition();
+    private MappedByteBuffer segment;
+    /**
+     * fsync 스레드가 미리 만들어 둔 segmentNumber + 1 세그먼트
+     */
+    private MappedByteBuffer preallocated;
+    /**
+     * 넘어간 뒤 아직 fsync하지 않은 세그먼트들. fsync 스레드가 지금 세그먼트보다 먼저 내린다.
+     */
+    private final List<Retiring> retiring = new ArrayList<>();
+    private long segmentNumber;
+    private int position;
+    private int flushedPosition;
+    private long appended;
+    private long durable;
+    private long appendedAtSnapshot;
+    private boolean closed;
+    /**
+     * 마지막 fsync가 실패했으면 그 예외. 다음 fsync가 성공하면 지운다.
+     */
+    private UncheckedIOException fsyncFailure;
+    /**
+     * 다음 세그먼트를 열지 못해 버린 레코드 수. 스냅샷이 그 시점 이후의 상태를 담으면 droppedAtSnapshot이 따라잡는다.
+     */
+    private long dropped;
+    private long droppedAtSnapshot;
+    private UncheckedIOException rollFailure;
+
+    private ScheduledExecutorService snapshotter;
+
+    private final Timer syncWait;
+    private final Counter fsyncs;
+    private final Timer snapshotTime;
+
+    /**
+     * @param segmentBytes           세그먼트 하나의 크기. 레코드 하나보다 커야 한다.
+     * @param syncOnWrite            true이면 변경 연산이 자기 레코드가 fsync될 때까지 기다린다.
+     * @param snapshotThresholdBytes 마지막 스냅샷 이후 이만큼 쓰면 새 스냅샷을 쓴다.
+     * @param snapshotCheckInterval  스냅샷이 필요한지 확인하는 주기
+     */
+    public RefreshTokenJournal(Path directory, int segmentBytes, boolean syncOnWrite, long snapshotThresholdBytes,
+                               Duration snapshotCheckInterval, MeterRegistry meterRegistry) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncOnWrite = syncOnWrite;
+        this.snapshotThresholdBytes = snapshotThresholdBytes;
+        this.snapshotCheckInterval = snapshotCheckInterval;
+
+        this.syncWait = Timer.builder("refresh.token.journal.sync")
+                .description("Time a store operation waited for its journal records to be fsynced")
+                .register(meterRegistry);
+        this.fsyncs = Counter.builder("refresh.token.journal.fsync")
+                .description("Journal fsync calls. Records per fsync grows with concurrent writers")
+                .register(meterRegistry);
+        this.snapshotTime = Timer.builder("refresh.token.snapshot")
+                .description("Time spent writing a refresh token snapshot")
+                .register(meterRegistry);
+        Gauge.builder("refresh.token.journal.pending", this, RefreshTokenJournal::bytesSinceSnapshot)
+                .description("Journal bytes written since the last snapshot")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 마지막 스냅샷과 그 뒤의 세그먼트를 events에 적용한 뒤 새 세그먼트를 열고, fsync 스레드와 스냅샷 확인을 시작한다.
+     */
+    void open(JournalCodec.Events events, SnapshotSource source) {
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            List<Long> snapshots = numbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            long snapshot = snapshots.isEmpty() ? -1 : snapshots.get(snapshots.size() - 1);
+            List<Long> segments = numbers(SEGMENT_PREFIX, SEGMENT_SUFFIX).stream().filter(number -> number >= snapshot).toList();
+
+            long snapshotRecords = snapshot >= 0 ? loadSnapshot(snapshotPath(snapshot), events) : 0;
+            long journalRecords = 0;
+            for (long number : segments)
+                journalRecords += replaySegment(segmentPath(number), events);
+
+            long next = Math.max(snapshot, segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1);
+            lock.lock();
+            try {
+                openSegment(next);
+            } finally {
+                lock.unlock();
+            }
+
+            log.info("refresh token journal recovered. snapshot={}, snapshotRecords={}, segments={}, journalRecords={}, elapsedMs={}",
+                    snapshot, snapshotRecords, segments.size(), journalRecords, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to recover refresh token journal", e);
+        }
+
+        Thread flusher = new Thread(this::flushLoop, "refresh-token-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh-token-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = snapshotCheckInterval.toMillis();
+        snapshotter.scheduleWithFixedDelay(() -> snapshotIfNeeded(source), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 저장소의 stripe 잠금을 잡은 채로 호출한다. 그래서 같은 키에 대한 레코드는 변경 순서대로 쌓인다.
+     * 메모리의 변경은 이미 반영된 뒤이므로 세그먼트를 넘기지 못해도 예외를 던지지 않고 레코드를 버린다. 실패는 {@link #sync()}가 알린다.
+     */
+    void append(ByteBuffer record) {
+        int length = record.remaining();
+        if (length > segmentBytes)
+            throw new IllegalArgumentException("journal record is larger than a segment: " + length + " bytes");
+
+        lock.lock();
+        try {
+            if (length > segmentBytes - position) {
+                try {
+                    roll();
+                } catch (UncheckedIOException e) {
+                    log.error("failed to roll refresh token journal. dropping a record until the next snapshot", e);
+                    dropped++;
+                    rollFailure = e;
+                    durableChanged.signalAll();
+                    return;
+                }
+            }
+
+            segment.put(position, record, record.position(), length);
+            position += length;
+            appended += length;
+            appendedChanged.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 지금까지 쓴 레코드가 모두 fsync될 때까지 기다린다. 저장소 잠금을 놓은 뒤에 호출한다. syncOnWrite가 false이면 바로 돌아온다.
+     * 기다리는 동안 fsync가 실패하면 UncheckedIOException을 던진다. 메모리의 변경은 이미 반영됐지만 디스크에 남았다고 볼 수 없다.
+     */
+    void sync() {
+        if (!syncOnWrite)
+            return;
+
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            long target = appended;
+            if (dropped != droppedAtSnapshot)
+                throw new UncheckedIOException("refresh token journal dropped records", rollFailure.getCause());
+            while (durable < target && !closed) {
+                if (dropped != droppedAtSnapshot)
+                    throw new UncheckedIOException("refresh token journal dropped records", rollFailure.getCause());
+                if (fsyncFailure != null)
+                    throw new UncheckedIOException("refresh token journal fsync failed", fsyncFailure.getCause());
+                durableChanged.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+            syncWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 새 세그먼트에서 이어 쓰고 그 시점의 스냅샷을 쓴다. 끝나면 이전 세그먼트와 스냅샷을 지운다.
+     */
+    void snapshot(SnapshotSource source) throws IOException {
+        // 세그먼트를 먼저 넘겨야 스냅샷에 담기지 않은 변경이 모두 새 세그먼트에 남는다.
+        long start = System.nanoTime();
+        long number;
+        long appendedAtRoll;
+        long droppedAtRoll;
+        lock.lock();
+        try {
+            roll();
+            number = segmentNumber;
+            appendedAtRoll = appended;
+            droppedAtRoll = dropped;
+        } finally {
+            lock.unlock();
+        }
+
+        Path temporary = directory.resolve(SNAPSHOT_PREFIX + number + ".tmp");
+        try {
+            writeSnapshot(temporary, source);
+            Files.move(temporary, snapshotPath(number), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+        lock.lock();
+        try {
+            appendedAtSnapshot = appendedAtRoll;
+            droppedAtSnapshot = droppedAtRoll;
+        } finally {
+            lock.unlock();
+        }
+
+        for (long older : numbers(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).stream().filter(n -> n < number).toList())
+            Files.deleteIfExists(snapshotPath(older));
+        for (long older : numbers(SEGMENT_PREFIX, SEGMENT_SUFFIX).stream().filter(n -> n < number).toList())
+            Files.deleteIfExists(segmentPath(older));
+
+        long elapsed = System.nanoTime() - start;
+        snapshotTime.record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("refresh token snapshot written. segment={}, elapsedMs={}", number, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    @Override
+    public void close() {
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+            try {
+                snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        lock.lock();
+        try {
+            if (segment != null) {
+                retiring.forEach(Retiring::force);
+                retiring.clear();
+                segment.force();
+                durable = appended;
+            }
+            closed = true;
+            appendedChanged.signalAll();
+            durableChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long bytesSinceSnapshot() {
+        lock.lock();
+        try {
+            return appended - appendedAtSnapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * fsync하는 동안에는 잠금을 놓아서 다른 스레드가 계속 쓸 수 있게 한다. 넘어간 세그먼트를 먼저 내리고, 다음 세그먼트가 없으면 만들어 둔다.
+     */
+    private void flushLoop() {
+        while (true) {
+            List<Retiring> retired;
+            MappedByteBuffer target;
+            int from;
+            int to;
+            long upTo;
+            long nextNumber;
+
+            lock.lock();
+            try {
+                while (appended == durable && retiring.isEmpty() && preallocated != null && !closed)
+                    appendedChanged.awaitUninterruptibly();
+                if (closed)
+                    return;
+
+                retired = List.copyOf(retiring);
+                target = segment;
+                from = flushedPosition;
+                to = position;
+                upTo = appended;
+                nextNumber = preallocated == null ? segmentNumber + 1 : -1;
+            } finally {
+                lock.unlock();
+            }
+
+            if (nextNumber >= 0 && !preallocate(nextNumber)) {
+                sleep(FSYNC_RETRY_MS);
+                continue;
+            }
+
+            try {
+                retired.forEach(Retiring::force);
+                if (to > from)
+                    target.force(from, to - from);
+                if (!retired.isEmpty() || to > from)
+                    fsyncs.increment();
+            } catch (UncheckedIOException e) {
+                // durable은 그대로 두고 기다리는 쓰기를 실패시킨 뒤, 같은 구간을 잠시 뒤에 다시 fsync한다.
+                log.error("refresh token journal fsync failed. retrying in {} ms", FSYNC_RETRY_MS, e);
+                lock.lock();
+                try {
+                    fsyncFailure = e;
+                    durableChanged.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                sleep(FSYNC_RETRY_MS);
+                continue;
+            }
+
+            lock.lock();
+            try {
+                if (closed)
+                    return;
+                retiring.subList(0, retired.size()).clear();
+                if (target == segment)
+                    flushedPosition = Math.max(flushedPosition, to);
+                durable = Math.max(durable, upTo);
+                fsyncFailure = null;
+                durableChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * lock 밖에서 세그먼트 파일을 만들고 매핑한다. 그 사이 쓰는 쪽이 직접 그 세그먼트를 열었으면 만든 매핑은 버린다.
+     */
+    private boolean preallocate(long number) {
+        MappedByteBuffer mapped;
+        try {
+            mapped = mapSegment(number);
+        } catch (UncheckedIOException e) {
+            log.error("failed to preallocate journal segment {}. retrying in {} ms", number, FSYNC_RETRY_MS, e);
+            return false;
+        }
+
+        lock.lock();
+        try {
+            if (preallocated == null && segmentNumber + 1 == number)
+                preallocated = mapped;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void snapshotIfNeeded(SnapshotSource source) {
+        boolean droppedRecords;
+        lock.lock();
+        try {
+            droppedRecords = dropped != droppedAtSnapshot;
+        } finally {
+            lock.unlock();
+        }
+        if (!droppedRecords && bytesSinceSnapshot() < snapshotThresholdBytes)
+            return;
+
+        try {
+            snapshot(source);
+        } catch (IOException | RuntimeException e) {
+            log.warn("refresh token snapshot failed", e);
+        }
+    }
+
+    /**
+     * lock을 잡은 채로 호출한다. 지금 세그먼트의 fsync는 fsync 스레드에 넘기고, 미리 만들어 둔 다음 세그먼트로 바꾼다.
+     * 미리 만든 세그먼트가 없을 때만 직접 연다.
+     */
+    private void roll() {
+        MappedByteBuffer next = preallocated != null ? preallocated : mapSegment(segmentNumber + 1);
+        preallocated = null;
+        retiring.add(new Retiring(segment, flushedPosition, position));
+        segment = next;
+        segmentNumber++;
+        position = 0;
+        flushedPosition = 0;
+        appendedChanged.signal();
+    }
+
+    private void openSegment(long number) {
+        segment = mapSegment(number);
+        segmentNumber = number;
+        position = 0;
+        flushedPosition = 0;
+    }
+
+    /**
+     * fsync 스레드가 미리 만든 파일을 쓰는 쪽이 다시 열 수 있으므로 CREATE_NEW가 아니다.
+     */
+    private MappedByteBuffer mapSegment(long number) {
+        try (FileChannel channel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to open journal segment " + number, e);
+        }
+    }
+
+    /**
+     * 넘어간 세그먼트에서 아직 fsync하지 않은 구간
+     */
+    private record Retiring(MappedByteBuffer segment, int from, int to) {
+        void force() {
+            if (to > from)
+                segment.force(from, to - from);
+        }
+    }
+
+    /**
+     * [int magic][int 구간 수][long 구간 시작 위치 * (구간 수 + 1)] 다음에 구간별 레코드가 이어진다.
+     */
+    private void writeSnapshot(Path path, SnapshotSource source) throws IOException {
+        int sections = source.sections();
+        long[] offsets = new long[sections + 1];
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(2 * Integer.BYTES + (sections + 1) * Long.BYTES);
+            channel.position(header.capacity());
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER_BYTES);
+            for (int section = 0; section < sections; section++) {
+                offsets[section] = channel.position();
+                source.dump(section, record -> {
+                    try {
+                        if (record.remaining() > buffer.remaining())
+                            drain(buffer, channel);
+                        buffer.put(record);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                drain(buffer, channel);
+            }
+            offsets[sections] = channel.position();
+
+            header.putInt(SNAPSHOT_MAGIC).putInt(sections);
+            for (long offset : offsets)
+                header.putLong(offset);
+            channel.write(header.flip(), 0);
+            channel.force(true);
+        }
+    }
+
+    private long loadSnapshot(Path path, JournalCodec.Events events) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer prefix = ByteBuffer.allocate(2 * Integer.BYTES);
+            channel.read(prefix, 0);
+            if (prefix.getInt(0) != SNAPSHOT_MAGIC)
+                throw new IllegalStateException("not a refresh token snapshot: " + path);
+
+            int sections = prefix.getInt(Integer.BYTES);
+            ByteBuffer table = ByteBuffer.allocate((sections + 1) * Long.BYTES);
+            channel.read(table, prefix.capacity());
+            long[] offsets = new long[sections + 1];
+            for (int i = 0; i <= sections; i++)
+                offsets[i] = table.getLong(i * Long.BYTES);
+
+            return IntStream.range(0, sections).parallel().mapToLong(section -> {
+                try {
+                    return JournalCodec.replay(channel.map(FileChannel.MapMode.READ_ONLY, offsets[section], offsets[section + 1] - offsets[section]), events);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        }
+    }
+
+    private static long replaySegment(Path path, JournalCodec.Events events) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return JournalCodec.replay(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), events);
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    private List<Long> numbers(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX);
+    }
+
+    private Path snapshotPath(long number) {
+        return directory.resolve(SNAPSHOT_PREFIX + number + SNAPSHOT_SUFFIX);
+    }
+}
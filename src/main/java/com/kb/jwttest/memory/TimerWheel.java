@@ -0,0 +1,186 @@
+package com.kb.jwttest.memory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 만료 처리용 해시 타이머 휠. 버킷은 deadline의 tick 번호로 고르고, tick마다 버킷 하나만 확인한다.
+ * 한 바퀴(tick * wheelSize)보다 먼 항목은 그대로 두었다가 다음 바퀴에 다시 확인한다.
+ * <p>
+ * 버킷은 잠금으로 보호하는 이중 연결 리스트라서 {@link Timeout#cancel()}로 항목을 바로 떼어 낼 수 있다. 예약한 쪽은 항목이 더 필요 없어지면
+ * 반드시 취소해야 휠이 그 항목을 deadline까지 붙잡지 않는다. 만료 콜백은 버킷 잠금 밖에서 호출하므로 콜백 안에서 다른 항목을 예약하거나 취소해도 된다.
+ * 예약과 tick 처리가 같은 버킷에서 겹치면 한 바퀴 늦게 처리될 수 있는데, 저장소는 조회할 때도 만료 시각을 확인하므로 메모리 회수만 늦어진다.
+ */
+@Slf4j
+class TimerWheel<T> implements AutoCloseable {
+    private final long tickMs;
+    private final int mask;
+    private final List<Bucket> buckets;
+    private final Consumer<T> onExpired;
+    private final Runnable afterTick;
+    private final ScheduledExecutorService ticker;
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile long processedTick;
+
+    /**
+     * @param wheelSize 2의 거듭제곱으로 올림한다.
+     * @param afterTick 한 tick을 처리한 뒤 같은 스레드에서 실행할 작업
+     */
+    TimerWheel(Duration tick, int wheelSize, String threadName, Consumer<T> onExpired, Runnable afterTick) {
+        this.tickMs = Math.max(tick.toMillis(), 1);
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            buckets.add(new Bucket());
+        this.onExpired = onExpired;
+        this.afterTick = afterTick;
+        this.processedTick = System.currentTimeMillis() / tickMs;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return 취소할 때 쓰는 핸들
+     */
+    Timeout schedule(T item, long deadlineMs) {
+        // 이미 지난 tick에 넣으면 한 바퀴 뒤에야 보이므로 다음 tick으로 당긴다.
+        long tick = Math.max(deadlineMs / tickMs, processedTick + 1);
+        Timeout timeout = new Timeout(item, deadlineMs, buckets.get((int) (tick & mask)));
+        timeout.bucket.link(timeout);
+        return timeout;
+    }
+
+    /**
+     * 아직 만료되지도 취소되지도 않은 항목 수
+     */
+    int size() {
+        return size.get();
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private void advance() {
+        try {
+            long now = System.currentTimeMillis();
+            long currentTick = now / tickMs;
+
+            // 밀린 tick은 한 바퀴까지만 따라잡는다. 그 이상은 같은 버킷을 다시 보는 것뿐이다.
+            long from = Math.max(processedTick + 1, currentTick - mask);
+            for (long tick = from; tick <= currentTick; tick++) {
+                expire(buckets.get((int) (tick & mask)), now);
+                processedTick = tick;
+            }
+
+            afterTick.run();
+        } catch (RuntimeException e) {
+            log.warn("timer wheel tick failed", e);
+        }
+    }
+
+    private void expire(Bucket bucket, long now) {
+        List<T> due = new ArrayList<>();
+
+        bucket.lock.lock();
+        try {
+            for (Timeout timeout = bucket.head; timeout != null; ) {
+                Timeout next = timeout.next;
+                if (timeout.deadlineMs <= now) {
+                    bucket.unlink(timeout);
+                    due.add(timeout.item);
+                }
+                timeout = next;
+            }
+        } finally {
+            bucket.lock.unlock();
+        }
+
+        for (T item : due)
+            onExpired.accept(item);
+    }
+
+    /**
+     * 예약된 항목 하나. 한 번 들어간 버킷에서 옮겨지지 않으므로, 취소는 그 버킷만 잠그면 된다.
+     */
+    final class Timeout {
+        private final T item;
+        private final long deadlineMs;
+        private final Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+        private boolean linked;
+
+        private Timeout(T item, long deadlineMs, Bucket bucket) {
+            this.item = item;
+            this.deadlineMs = deadlineMs;
+            this.bucket = bucket;
+        }
+
+        /**
+         * 휠에서 떼어 낸다. 이미 만료됐거나 취소된 항목이면 아무것도 하지 않는다.
+         */
+        void cancel() {
+            bucket.lock.lock();
+            try {
+                if (linked)
+                    bucket.unlink(this);
+            } finally {
+                bucket.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 가상 스레드가 캐리어에 고정되지 않도록 synchronized 대신 ReentrantLock을 쓴다.
+     */
+    private final class Bucket {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Timeout head;
+
+        private void link(Timeout timeout) {
+            lock.lock();
+            try {
+                timeout.next = head;
+                if (head != null)
+                    head.prev = timeout;
+                head = timeout;
+                timeout.linked = true;
+                size.incrementAndGet();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * lock을 잡은 채로 호출한다.
+         */
+        private void unlink(Timeout timeout) {
+            if (timeout.prev != null)
+                timeout.prev.next = timeout.next;
+            else
+                head = timeout.next;
+            if (timeout.next != null)
+                timeout.next.prev = timeout.prev;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.linked = false;
+            size.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.kb.jwttest.redis;
+
+import com.kb.jwttest.jwt.JwtUtils;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * TTL 없이 저장됐던 이전 @RedisHash 구조의 refresh token을 조금씩 정리한다.
+ * 실행할 때마다 이전 커서에서 SCAN(COUNT batchSize)을 한 번만 보내므로, 남은 키가 드물어도 한 번의 실행이 키 전체를 훑지 않는다.
+ * 아무것도 지우지 못한 채 한 바퀴를 돌면 idleIntervalMs 동안 그 순회를 쉰다.
+ * <ul>
+ *     <li>refresh_token:{jwt} : JWT가 만료됐거나 검증되지 않으면 hash, 인덱스, 키스페이스 멤버를 함께 지운다.</li>
+ *     <li>refresh_token:token:{jwt}, refresh_token:{jwt}:idx : 원본 hash가 없으면 지운다.</li>
+ *     <li>refresh_token (키스페이스 set) : 원본 hash가 없는 멤버를 뺀다.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${jwt.sweeper.enabled:true} and '${jwt.store.type:redis}' == 'redis'")
+public class LegacyRefreshTokenSweeper {
+    private static final String KEYSPACE = "refresh_token";
+    private static final String KEY_PREFIX = KEYSPACE + ":";
+    private static final String INDEX_PREFIX = KEYSPACE + ":token:";
+    private static final String IDX_SUFFIX = ":idx";
+    private static final String PHANTOM_SUFFIX = ":phantom";
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RECLAIM_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/reclaim-legacy-refresh-token.lua"), List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SCAN_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/scan-legacy-refresh-tokens.lua"), List.class);
+    private static final String SCAN_START = "0";
+
+    private final StringRedisTemplate redisTemplate;
+    private final JwtUtils jwtUtils;
+    private final int batchSize;
+    private final long idleIntervalMs;
+    private final Counter reclaimedKeys;
+    private final Counter freedBytes;
+    private final Pass keyPass = new Pass();
+    private final Pass memberPass = new Pass();
+
+    public LegacyRefreshTokenSweeper(StringRedisTemplate redisTemplate,
+                                     JwtUtils jwtUtils,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${jwt.sweeper.batchSize:500}") int batchSize,
+                                     @Value("${jwt.sweeper.idleIntervalMs:3600000}") long idleIntervalMs) {
+        this.redisTemplate = redisTemplate;
+        this.jwtUtils = jwtUtils;
+        this.batchSize = batchSize;
+        this.idleIntervalMs = idleIntervalMs;
+        this.reclaimedKeys = Counter.builder("refresh.token.sweeper.reclaimed")
+                .description("Legacy refresh token keys and index members removed by the sweeper")
+                .baseUnit("keys")
+                .register(meterRegistry);
+        this.freedBytes = Counter.builder("refresh.token.sweeper.freed")
+                .description("Redis memory released by the sweeper")
+                .baseUnit(BaseUnits.BYTES)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.sweeper.intervalMs:1000}")
+    public synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        try {
+            if (keyPass.isDue(now))
+                sweepKeys(now);
+            if (memberPass.isDue(now))
+                sweepKeyspaceMembers(now);
+        } catch (RuntimeException e) {
+            log.warn("legacy refresh token sweep failed", e);
+        }
+    }
+
+    private void sweepKeys(long now) {
+        List<String> keys = scan(keyPass, List.of(), KEY_PREFIX + "*");
+
+        for (String key : keys) {
+            if (key.startsWith(INDEX_PREFIX)) {
+                keyPass.reclaimed += reclaimIfOrphan(key, key.substring(INDEX_PREFIX.length()));
+            } else if (key.endsWith(IDX_SUFFIX)) {
+                keyPass.reclaimed += reclaimIfOrphan(key, key.substring(KEY_PREFIX.length(), key.length() - IDX_SUFFIX.length()));
+            } else if (!key.endsWith(PHANTOM_SUFFIX)) {
+                keyPass.reclaimed += reclaimIfExpired(key.substring(KEY_PREFIX.length()));
+            }
+        }
+        keyPass.endIfFinished(now, "keys");
+    }
+
+    private void sweepKeyspaceMembers(long now) {
+        List<String> tokens = scan(memberPass, List.of(KEYSPACE), "");
+
+        for (String token : tokens) {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + token)))
+                memberPass.reclaimed += reclaim(List.of(), token);
+        }
+        memberPass.endIfFinished(now, "keyspace members");
+    }
+
+    /**
+     * 커서를 한 칸 진행하고 이번에 받은 원소를 반환한다. 실패하면 커서는 그대로라서 다음 실행에 같은 자리부터 다시 시도한다.
+     */
+    @SuppressWarnings("unchecked")
+    private List<String> scan(Pass pass, List<String> keys, String pattern) {
+        List<Object> reply = redisTemplate.execute(SCAN_SCRIPT, keys, pass.cursor, String.valueOf(batchSize), pattern);
+        if (reply == null || reply.size() < 2)
+            return List.of();
+
+        pass.cursor = String.valueOf(reply.get(0));
+        return (List<String>) reply.get(1);
+    }
+
+    private long reclaimIfExpired(String token) {
+        if (!isExpiredOrInvalid(token))
+            return 0;
+
+        String hashKey = KEY_PREFIX + token;
+        return reclaim(List.of(hashKey, hashKey + IDX_SUFFIX, hashKey + PHANTOM_SUFFIX, INDEX_PREFIX + token), token);
+    }
+
+    private long reclaimIfOrphan(String key, String token) {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + token)))
+            return 0;
+        return reclaim(List.of(key), null);
+    }
+
+    private long reclaim(List<String> keys, String keyspaceMember) {
+        List<?> result = keyspaceMember == null
+                ? redisTemplate.execute(RECLAIM_SCRIPT, keys, KEYSPACE)
+                : redisTemplate.execute(RECLAIM_SCRIPT, keys, KEYSPACE, keyspaceMember);
+
+        if (result == null || result.size() < 2)
+            return 0;
+
+        long reclaimed = ((Number) result.get(0)).longValue();
+        reclaimedKeys.increment(reclaimed);
+        freedBytes.increment(((Number) result.get(1)).doubleValue());
+        return reclaimed;
+    }
+
+    private boolean isExpiredOrInvalid(String token) {
+        try {
+            return jwtUtils.verify(token).isExpired();
+        } catch (JwtException | IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    /**
+     * SCAN 한 바퀴의 진행 상태. 커서는 실행 사이에 이어지고, 한 바퀴에서 지운 것이 없으면 idleIntervalMs 동안 다음 바퀴를 미룬다.
+     */
+    private class Pass {
+        private String cursor = SCAN_START;
+        private long reclaimed;
+        private long idleUntil;
+
+        private boolean isDue(long now) {
+            return now >= idleUntil;
+        }
+
+        private void endIfFinished(long now, String target) {
+            if (!SCAN_START.equals(cursor))
+                return;
+
+            if (reclaimed == 0) {
+                idleUntil = now + idleIntervalMs;
+                log.debug("legacy refresh token sweep found nothing in {}. next pass in {} ms", target, idleIntervalMs);
+            }
+            reclaimed = 0;
+        }
+    }
+}
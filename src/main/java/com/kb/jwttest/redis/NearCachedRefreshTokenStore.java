@@ -0,0 +1,145 @@
+package com.kb.jwttest.redis;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RefreshTokenNearCache}로 존재 확인을 로컬에서 처리하고, 확실하지 않은 경우만 Redis에 묻는 저장소.
+ * 토큰이 폐기되면 Redis pub/sub으로 다른 노드에 알려서 각 노드의 near-cache를 맞춘다.
+ * <p>
+ * 메시지 형식: {@code {tokenId[,tokenId...]} {발행 시각(epoch millis)} {노드 id}}
+ */
+@Slf4j
+public class NearCachedRefreshTokenStore implements RefreshTokenStore, MessageListener {
+    public static final String INVALIDATION_CHANNEL = "refresh_token:revoked";
+
+    private final RefreshTokenStore delegate;
+    private final RefreshTokenNearCache nearCache;
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Timer invalidationLag;
+    // 발행은 요청 스레드 밖에서 한다. 큐가 가득 차면 오래된 메시지를 버리고, 놓친 무효화는 near-cache ttl로 제한된다.
+    private final ThreadPoolExecutor publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(10_000), runnable -> {
+                Thread thread = new Thread(runnable, "refresh-token-invalidation");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardOldestPolicy());
+
+    public NearCachedRefreshTokenStore(RefreshTokenStore delegate, RefreshTokenNearCache nearCache, StringRedisTemplate redisTemplate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.nearCache = nearCache;
+        this.redisTemplate = redisTemplate;
+        this.invalidationLag = Timer.builder("refresh.token.invalidation.lag")
+                .description("Time between publishing a revocation and applying it on this node")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void save(String refreshToken, String familyId, String username, long expiration) {
+        delegate.save(refreshToken, familyId, username, expiration);
+        nearCache.markValid(RefreshTokenIds.of(refreshToken));
+    }
+
+    @Override
+    public boolean exists(String refreshToken) {
+        String tokenId = RefreshTokenIds.of(refreshToken);
+
+        if (nearCache.lookup(tokenId) == RefreshTokenNearCache.Lookup.KNOWN_VALID)
+            return true;
+
+        boolean exists = delegate.exists(refreshToken);
+        if (exists)
+            nearCache.markValid(tokenId);
+        return exists;
+    }
+
+    @Override
+    public RotationResult rotate(String oldToken, String newToken, String familyId, String username, long expiration) {
+        RotationResult result = delegate.rotate(oldToken, newToken, familyId, username, expiration);
+
+        // 재사용이 감지되면 family에서 폐기한 토큰도 다른 노드에 알린다. 동시 교체는 먼저 교체한 노드가 이미 알렸다.
+        List<String> revoked = new ArrayList<>(result.revokedTokenIds());
+        revoked.add(RefreshTokenIds.of(oldToken));
+        revoke(revoked, result.status() == RotationResult.Status.ROTATED || result.status() == RotationResult.Status.REUSE_DETECTED);
+        if (result.isIssued())
+            nearCache.markValid(RefreshTokenIds.of(newToken));
+
+        return result;
+    }
+
+    @Override
+    public boolean delete(String refreshToken) {
+        boolean deleted = delegate.delete(refreshToken);
+        revoke(List.of(RefreshTokenIds.of(refreshToken)), deleted);
+        return deleted;
+    }
+
+    @Override
+    public List<RefreshTokenSession> findSessions(String username) {
+        return delegate.findSessions(username);
+    }
+
+    @Override
+    public List<String> revokeAll(String username) {
+        List<String> revoked = delegate.revokeAll(username);
+        revoke(revoked, true);
+        return revoked;
+    }
+
+    @Override
+    public List<String> revokeUsers(List<String> usernames) {
+        List<String> revoked = delegate.revokeUsers(usernames);
+        revoke(revoked, true);
+        return revoked;
+    }
+
+    @Override
+    public List<String> revokeTokenIds(List<String> tokenIds) {
+        List<String> revoked = delegate.revokeTokenIds(tokenIds);
+        revoke(revoked, true);
+        return revoked;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(" ");
+        if (parts.length != 3 || nodeId.equals(parts[2]))
+            return;
+
+        for (String tokenId : parts[0].split(","))
+            nearCache.markRevoked(tokenId);
+        invalidationLag.record(Math.max(System.currentTimeMillis() - Long.parseLong(parts[1]), 0), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 로컬 상태는 항상 갱신하고, 실제로 Redis에서 지워진 경우에만 다른 노드에 알린다.
+     */
+    private void revoke(List<String> tokenIds, boolean publish) {
+        tokenIds.forEach(nearCache::markRevoked);
+
+        if (!publish || tokenIds.isEmpty())
+            return;
+
+        String message = String.join(",", tokenIds) + " " + System.currentTimeMillis() + " " + nodeId;
+        publisher.execute(() -> {
+            try {
+                redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+            } catch (RuntimeException e) {
+                log.warn("failed to publish refresh token invalidation", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package com.kb.jwttest.redis;
+
+import com.kb.jwttest.jwt.AccessTokenRevocations;
+import com.kb.jwttest.jwt.LocalAccessTokenRevocations;
+import com.kb.jwttest.jwt.VerifiedToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * revoked-before 시각을 Redis zset에 두고 pub/sub으로 모든 노드의 {@link LocalAccessTokenRevocations}에 퍼뜨린다.
+ * 확인은 로컬에서만 한다. 놓친 메시지와 새로 뜬 노드는 주기적인 전체 동기화로 맞춘다.
+ * <p>
+ * 메시지 형식: {@code {revoked-before(epoch millis)}\n{username}[\n{username}...]}
+ */
+@Slf4j
+public class RedisAccessTokenRevocations implements AccessTokenRevocations, MessageListener {
+    public static final String REVOCATION_CHANNEL = "access_token:revoked";
+
+    private static final String REVOKED_BEFORE_KEY = "access_token:revoked_before";
+    private static final RedisScript<Long> REVOKE_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/revoke-access-tokens.lua"), Long.class);
+
+    private final LocalAccessTokenRevocations local;
+    private final StringRedisTemplate redisTemplate;
+    private final long accessExpiredMs;
+
+    public RedisAccessTokenRevocations(LocalAccessTokenRevocations local, StringRedisTemplate redisTemplate, long accessExpiredMs) {
+        this.local = local;
+        this.redisTemplate = redisTemplate;
+        this.accessExpiredMs = accessExpiredMs;
+    }
+
+    /**
+     * 이 노드에는 바로 반영하고, 다른 노드에는 스크립트가 발행한 메시지로 반영된다.
+     */
+    @Override
+    public void revoke(List<String> usernames) {
+        if (usernames.isEmpty())
+            return;
+
+        long epoch = LocalAccessTokenRevocations.epochOf(System.currentTimeMillis());
+        for (String username : usernames)
+            local.apply(username, epoch);
+
+        List<String> args = new ArrayList<>(usernames.size() + 2);
+        args.add(REVOCATION_CHANNEL);
+        args.add(String.valueOf(epoch));
+        args.addAll(usernames);
+        redisTemplate.execute(REVOKE_SCRIPT, List.of(REVOKED_BEFORE_KEY), args.toArray());
+    }
+
+    @Override
+    public boolean isRevoked(VerifiedToken token) {
+        return local.isRevoked(token);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] lines = new String(message.getBody(), StandardCharsets.UTF_8).split("\n");
+        long epoch = Long.parseLong(lines[0]);
+        for (int i = 1; i < lines.length; i++)
+            local.apply(lines[i], epoch);
+    }
+
+    /**
+     * access token 수명이 지난 항목을 Redis와 로컬에서 지우고, 남은 항목을 모두 로컬에 반영한다.
+     * fixedDelay의 첫 실행은 시작 직후라서 새로 뜬 노드도 바로 채워진다.
+     */
+    @Scheduled(fixedDelayString = "${jwt.accessRevocation.syncMs:30000}")
+    public void sync() {
+        long cutoff = System.currentTimeMillis() - accessExpiredMs;
+        int applied = 0;
+
+        try {
+            redisTemplate.opsForZSet().removeRangeByScore(REVOKED_BEFORE_KEY, 0, cutoff);
+            try (Cursor<ZSetOperations.TypedTuple<String>> cursor = redisTemplate.opsForZSet()
+                    .scan(REVOKED_BEFORE_KEY, ScanOptions.scanOptions().count(1000).build())) {
+                while (cursor.hasNext()) {
+                    ZSetOperations.TypedTuple<String> entry = cursor.next();
+                    if (entry.getValue() != null && entry.getScore() != null && local.apply(entry.getValue(), entry.getScore().longValue()))
+                        applied++;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("failed to sync access token revocations", e);
+        }
+
+        local.prune();
+        if (applied > 0)
+            log.info("access token revocations synced. applied={}, size={}", applied, local.size());
+    }
+}
@@ -1,9 +1,89 @@
 package com.kb.jwttest.redis;
 
+import com.kb.jwttest.jwt.LocalAccessTokenRevocations;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
 
+import java.time.Duration;
+
+/**
+ * jwt.store.type=redis(기본값)일 때의 refresh token 저장소, access token 폐기 목록, 노드 간에 무효화를 맞추는 사용자 캐시. memory이면 {@link com.kb.jwttest.memory.InMemoryStoreConfig}가 대신한다.
+ */
 @EnableRedisRepositories
 @Configuration
+@ConditionalOnProperty(name = "jwt.store.type", havingValue = "redis", matchIfMissing = true)
 public class RedisConfig {
-}
\ No newline at end of file
+    @Bean
+    public RedisRefreshTokenStore redisRefreshTokenStore(StringRedisTemplate redisTemplate,
+                                                         MeterRegistry meterRegistry,
+                                                         @Value("${jwt.rotation.graceMs:2000}") long rotationGraceMs,
+                                                         @Value("${jwt.store.legacyFallback:true}") boolean legacyFallback) {
+        return new RedisRefreshTokenStore(redisTemplate, rotationGraceMs, legacyFallback, meterRegistry);
+    }
+
+    @Primary
+    @Bean
+    @ConditionalOnProperty(name = "jwt.nearCache.enabled", havingValue = "true", matchIfMissing = true)
+    public NearCachedRefreshTokenStore nearCachedRefreshTokenStore(RedisRefreshTokenStore redisRefreshTokenStore,
+                                                                   StringRedisTemplate redisTemplate,
+                                                                   MeterRegistry meterRegistry,
+                                                                   @Value("${jwt.nearCache.maxSize:100000}") long maxSize,
+                                                                   @Value("${jwt.nearCache.ttlMs:30000}") long ttlMs,
+                                                                   @Value("${jwt.nearCache.revokedCapacity:1000000}") long revokedCapacity) {
+        RefreshTokenNearCache nearCache = new RefreshTokenNearCache(maxSize, Duration.ofMillis(ttlMs), revokedCapacity, 0.01, meterRegistry);
+        return new NearCachedRefreshTokenStore(redisRefreshTokenStore, nearCache, redisTemplate, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "jwt.nearCache.enabled", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer refreshTokenInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                         NearCachedRefreshTokenStore nearCachedRefreshTokenStore) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(nearCachedRefreshTokenStore, new ChannelTopic(NearCachedRefreshTokenStore.INVALIDATION_CHANNEL));
+        return container;
+    }
+
+    @Bean
+    public RedisAccessTokenRevocations redisAccessTokenRevocations(StringRedisTemplate redisTemplate,
+                                                                   MeterRegistry meterRegistry,
+                                                                   @Value("${jwt.accesExpiredMs}") long accessExpiredMs) {
+        LocalAccessTokenRevocations local = new LocalAccessTokenRevocations(accessExpiredMs, meterRegistry);
+        return new RedisAccessTokenRevocations(local, redisTemplate, accessExpiredMs);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer accessTokenRevocationListener(RedisConnectionFactory connectionFactory,
+                                                                       RedisAccessTokenRevocations redisAccessTokenRevocations) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(redisAccessTokenRevocations, new ChannelTopic(RedisAccessTokenRevocations.REVOCATION_CHANNEL));
+        return container;
+    }
+
+    @Bean
+    public RedisUserDetailsCache redisUserDetailsCache(StringRedisTemplate redisTemplate,
+                                                       MeterRegistry meterRegistry,
+                                                       @Value("${security.userCache.maxSize:10000}") long maxSize,
+                                                       @Value("${security.userCache.ttlMs:60000}") long ttlMs) {
+        return new RedisUserDetailsCache(redisTemplate, meterRegistry, maxSize, ttlMs);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer userDetailsInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                         RedisUserDetailsCache redisUserDetailsCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(redisUserDetailsCache, new ChannelTopic(RedisUserDetailsCache.INVALIDATION_CHANNEL));
+        return container;
+    }
+}
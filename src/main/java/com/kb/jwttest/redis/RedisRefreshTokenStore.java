@@ -0,0 +1,249 @@
+package com.kb.jwttest.redis;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 토큰 하나당 string 키 하나(rt:{id} = username)만 쓰고 만료는 Redis의 TTL에 맡긴다.
+ * 사용자별 세션 인덱스는 zset(rt:user:{username}, member = 토큰 id, score = 만료 시각)이고, 토큰 쓰기와 같은 스크립트에서 갱신한다.
+ * 일괄 폐기는 스크립트를 한 번 로드한 뒤 EVALSHA를 파이프라인으로 묶어서 보낸다.
+ * <p>
+ * 한 번의 로그인에서 이어지는 토큰들은 family 해시(rt:fam:{familyId})로 묶는다. 교체 스크립트가 같은 왕복 안에서
+ * 이미 교체된 토큰의 재사용을 판단해서, grace window 안이면 동시 교체로 보고 새 토큰을 하나 더 저장하고 그 밖이면 family 전체를 폐기한다.
+ * <p>
+ * legacyFallback이면 새 구조에 없는 토큰을 이전 @RedisHash 구조(refresh_token:{jwt})에서 한 번 더 찾는다. 배포 전에 발급된 토큰도
+ * 존재 확인을 통과하고, 재발급할 때 새 구조로 옮겨지며, 로그아웃하면 지워진다. 이전 구조에는 사용자 인덱스가 없으므로 사용자 단위 폐기에는 잡히지 않는다.
+ * <p>
+ * 연산마다 Redis 왕복 시간을 {@code auth.redis} 타이머(operation 태그)로 남긴다. near-cache에서 끝난 조회는 여기까지 오지 않는다.
+ */
+public class RedisRefreshTokenStore implements RefreshTokenStore {
+    private static final String KEY_PREFIX = "rt:";
+    private static final String USER_KEY_PREFIX = "rt:user:";
+    private static final String FAMILY_KEY_PREFIX = "rt:fam:";
+    private static final String LEGACY_KEYSPACE = "refresh_token";
+    private static final String LEGACY_KEY_PREFIX = LEGACY_KEYSPACE + ":";
+    private static final String LEGACY_INDEX_PREFIX = LEGACY_KEYSPACE + ":token:";
+    private static final long ROTATED = 1;
+    private static final long CONCURRENT = 2;
+    private static final long REUSE_DETECTED = 3;
+    private static final RedisScript<Long> SAVE_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/save-refresh-token.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ROTATE_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/rotate-refresh-token.lua"), List.class);
+    private static final RedisScript<Long> DELETE_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/delete-refresh-token.lua"), Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> REVOKE_USER_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/revoke-user-refresh-tokens.lua"), List.class);
+    private static final RedisScript<Long> MIGRATE_LEGACY_SCRIPT =
+            RedisScript.of(new ClassPathResource("redis/migrate-legacy-refresh-token.lua"), Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final long rotationGraceMs;
+    private final boolean legacyFallback;
+    private final Timer saveTime;
+    private final Timer existsTime;
+    private final Timer rotateTime;
+    private final Timer deleteTime;
+    private final Timer findSessionsTime;
+    private final Timer revokeAllTime;
+    private final Timer revokeUsersTime;
+    private final Timer revokeTokenIdsTime;
+    private final Timer legacyTime;
+
+    public RedisRefreshTokenStore(StringRedisTemplate redisTemplate, long rotationGraceMs, MeterRegistry meterRegistry) {
+        this(redisTemplate, rotationGraceMs, false, meterRegistry);
+    }
+
+    /**
+     * @param rotationGraceMs 이미 교체된 토큰이 이 시간 안에 다시 들어오면 재사용이 아니라 동시 교체로 본다.
+     * @param legacyFallback  새 구조에 없는 토큰을 이전 구조에서 찾아 옮긴다. 이전 토큰이 모두 만료되면 끈다.
+     */
+    public RedisRefreshTokenStore(StringRedisTemplate redisTemplate, long rotationGraceMs, boolean legacyFallback, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.rotationGraceMs = rotationGraceMs;
+        this.legacyFallback = legacyFallback;
+        this.saveTime = timer(meterRegistry, "save");
+        this.existsTime = timer(meterRegistry, "exists");
+        this.rotateTime = timer(meterRegistry, "rotate");
+        this.deleteTime = timer(meterRegistry, "delete");
+        this.findSessionsTime = timer(meterRegistry, "find_sessions");
+        this.revokeAllTime = timer(meterRegistry, "revoke_all");
+        this.revokeUsersTime = timer(meterRegistry, "revoke_users");
+        this.revokeTokenIdsTime = timer(meterRegistry, "revoke_token_ids");
+        this.legacyTime = timer(meterRegistry, "legacy");
+    }
+
+    @Override
+    public void save(String refreshToken, String familyId, String username, long expiration) {
+        long now = System.currentTimeMillis();
+        long ttlMs = expiration - now;
+        if (ttlMs <= 0)
+            return;
+
+        String tokenId = RefreshTokenIds.of(refreshToken);
+        timed(saveTime, () -> redisTemplate.execute(SAVE_SCRIPT,
+                List.of(KEY_PREFIX + tokenId, USER_KEY_PREFIX + username, FAMILY_KEY_PREFIX + familyId),
+                username, String.valueOf(ttlMs), tokenId, String.valueOf(expiration), String.valueOf(now)));
+    }
+
+    @Override
+    public boolean exists(String refreshToken) {
+        String key = KEY_PREFIX + RefreshTokenIds.of(refreshToken);
+        if (Boolean.TRUE.equals(timed(existsTime, () -> redisTemplate.hasKey(key))))
+            return true;
+
+        return legacyFallback && Boolean.TRUE.equals(timed(legacyTime, () -> redisTemplate.hasKey(LEGACY_KEY_PREFIX + refreshToken)));
+    }
+
+    @Override
+    public RotationResult rotate(String oldToken, String newToken, String familyId, String username, long expiration) {
+        long now = System.currentTimeMillis();
+        // 새 토큰이 이미 만료된 경우에도 기존 토큰은 지워야 하므로 TTL은 최소 1ms로 둔다.
+        long ttlMs = Math.max(expiration - now, 1);
+        String oldTokenId = RefreshTokenIds.of(oldToken);
+        String newTokenId = RefreshTokenIds.of(newToken);
+
+        List<?> result = timed(rotateTime, () -> redisTemplate.execute(ROTATE_SCRIPT,
+                List.of(KEY_PREFIX + oldTokenId, KEY_PREFIX + newTokenId, USER_KEY_PREFIX + username, FAMILY_KEY_PREFIX + familyId),
+                username, String.valueOf(ttlMs), oldTokenId, newTokenId, String.valueOf(expiration), String.valueOf(now),
+                String.valueOf(rotationGraceMs), KEY_PREFIX, String.valueOf(MAX_ROTATED_TOKENS)));
+
+        long status = result != null && !result.isEmpty() && result.get(0) instanceof Long code ? code : 0;
+        if (status == ROTATED)
+            return RotationResult.ROTATED;
+        if (status == CONCURRENT)
+            return RotationResult.CONCURRENT;
+        if (status == REUSE_DETECTED)
+            return RotationResult.reuseDetected(result.subList(1, result.size()).stream().map(String::valueOf).toList());
+
+        if (legacyFallback) {
+            // 이전 구조의 토큰이면 지우고 새 토큰을 새 구조로 저장한다. 이전 토큰에는 family 기록이 없으므로 재사용 판단은 하지 않는다.
+            Long migrated = timed(legacyTime, () -> redisTemplate.execute(MIGRATE_LEGACY_SCRIPT,
+                    List.of(LEGACY_KEY_PREFIX + oldToken, KEY_PREFIX + newTokenId, USER_KEY_PREFIX + username, FAMILY_KEY_PREFIX + familyId),
+                    LEGACY_KEYSPACE, oldToken, LEGACY_INDEX_PREFIX,
+                    username, String.valueOf(ttlMs), newTokenId, String.valueOf(expiration), String.valueOf(now)));
+            if (migrated != null && migrated == 1L)
+                return RotationResult.ROTATED;
+        }
+        return RotationResult.NOT_FOUND;
+    }
+
+    @Override
+    public boolean delete(String refreshToken) {
+        String tokenId = RefreshTokenIds.of(refreshToken);
+        Long result = timed(deleteTime, () -> redisTemplate.execute(DELETE_SCRIPT, List.of(KEY_PREFIX + tokenId), USER_KEY_PREFIX, tokenId));
+        if (result != null && result == 1L)
+            return true;
+
+        if (!legacyFallback)
+            return false;
+        Long legacy = timed(legacyTime, () -> redisTemplate.execute(MIGRATE_LEGACY_SCRIPT,
+                List.of(LEGACY_KEY_PREFIX + refreshToken), LEGACY_KEYSPACE, refreshToken, LEGACY_INDEX_PREFIX));
+        return legacy != null && legacy == 1L;
+    }
+
+    @Override
+    public List<RefreshTokenSession> findSessions(String username) {
+        Set<ZSetOperations.TypedTuple<String>> sessions = timed(findSessionsTime, () -> redisTemplate.opsForZSet()
+                .rangeByScoreWithScores(USER_KEY_PREFIX + username, System.currentTimeMillis(), Double.POSITIVE_INFINITY));
+
+        if (sessions == null)
+            return List.of();
+
+        return sessions.stream()
+                .map(session -> new RefreshTokenSession(session.getValue(), session.getScore().longValue()))
+                .toList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> revokeAll(String username) {
+        List<String> revoked = timed(revokeAllTime, () -> redisTemplate.execute(REVOKE_USER_SCRIPT, List.of(USER_KEY_PREFIX + username), KEY_PREFIX));
+        return revoked != null ? revoked : List.of();
+    }
+
+    @Override
+    public List<String> revokeUsers(List<String> usernames) {
+        List<Object> results = timed(revokeUsersTime, () -> {
+            String sha = loadScript(REVOKE_USER_SCRIPT);
+            byte[] keyPrefix = bytes(KEY_PREFIX);
+
+            return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String username : usernames)
+                    connection.scriptingCommands().evalSha(sha, ReturnType.MULTI, 1, bytes(USER_KEY_PREFIX + username), keyPrefix);
+                return null;
+            });
+        });
+
+        List<String> revoked = new ArrayList<>();
+        for (Object result : results) {
+            if (result instanceof List<?> tokenIds)
+                tokenIds.forEach(tokenId -> revoked.add(String.valueOf(tokenId)));
+        }
+        return revoked;
+    }
+
+    @Override
+    public List<String> revokeTokenIds(List<String> tokenIds) {
+        List<Object> results = timed(revokeTokenIdsTime, () -> {
+            String sha = loadScript(DELETE_SCRIPT);
+            byte[] userKeyPrefix = bytes(USER_KEY_PREFIX);
+
+            return redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String tokenId : tokenIds)
+                    connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 1, bytes(KEY_PREFIX + tokenId), userKeyPrefix, bytes(tokenId));
+                return null;
+            });
+        });
+
+        List<String> revoked = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) instanceof Long deleted && deleted == 1L)
+                revoked.add(tokenIds.get(i));
+        }
+        return revoked;
+    }
+
+    /**
+     * 파이프라인 안에서는 NOSCRIPT 오류를 다시 시도할 수 없으므로 배치마다 먼저 스크립트를 로드한다.
+     */
+    private String loadScript(RedisScript<?> script) {
+        return redisTemplate.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(bytes(script.getScriptAsString())));
+    }
+
+    private static <T> T timed(Timer timer, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.redis")
+                .description("Redis round trip time of a refresh token store operation")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
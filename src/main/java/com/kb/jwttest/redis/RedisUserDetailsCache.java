@@ -0,0 +1,64 @@
+package com.kb.jwttest.redis;
+
+import com.kb.jwttest.security.UserDetailsCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 무효화를 Redis pub/sub으로 다른 노드에도 알리는 {@link UserDetailsCache}.
+ * 다른 노드에는 메시지가 도착할 때까지 이전 해시/권한이 남고, 놓친 메시지는 캐시 ttl로 제한된다.
+ * <p>
+ * 메시지 형식: {@code {노드 id} {username}}
+ */
+@Slf4j
+public class RedisUserDetailsCache extends UserDetailsCache implements MessageListener {
+    public static final String INVALIDATION_CHANNEL = "user_details:evicted";
+
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+    // 발행은 요청 스레드 밖에서 한다. 큐가 가득 차면 오래된 메시지를 버린다.
+    private final ThreadPoolExecutor publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(10_000), runnable -> {
+                Thread thread = new Thread(runnable, "user-details-invalidation");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardOldestPolicy());
+
+    public RedisUserDetailsCache(StringRedisTemplate redisTemplate, MeterRegistry meterRegistry, long maximumSize, long ttlMs) {
+        super(meterRegistry, maximumSize, ttlMs);
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public void evict(String username) {
+        super.evict(username);
+
+        String message = nodeId + " " + username;
+        publisher.execute(() -> {
+            try {
+                redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+            } catch (RuntimeException e) {
+                log.warn("failed to publish user details invalidation", e);
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf(' ');
+        if (separator < 0 || nodeId.equals(body.substring(0, separator)))
+            return;
+
+        super.evict(body.substring(separator + 1));
+    }
+}
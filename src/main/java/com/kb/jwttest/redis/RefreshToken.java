@@ -6,6 +6,10 @@ import org.springframework.data.redis.core.RedisHash;
 import org.springframework.data.redis.core.TimeToLive;
 import org.springframework.data.redis.core.index.Indexed;
 
+/**
+ * 이전 저장 구조(@RedisHash + @Indexed). 새 토큰은 {@link RefreshTokenStore}에 저장한다.
+ * 이 구조의 키는 {@link RedisRefreshTokenStore}의 legacyFallback이 조회/이전하고 {@link LegacyRefreshTokenSweeper}가 정리한다.
+ */
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
@@ -19,8 +23,12 @@ public class RefreshToken {
     @TimeToLive
     private long ttl;
 
-    public RefreshToken(String token) {
+    /**
+     * @param ttl 만료까지 남은 시간(초)
+     */
+    public RefreshToken(String token, long ttl) {
         this.id = token;
         this.token = token;
+        this.ttl = ttl;
     }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.kb.jwttest.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * refresh token 원문(수백 바이트)을 저장 키로 쓰지 않도록 SHA-256 앞 128비트를 base64url(22자)로 줄인 id를 만든다.
+ */
+public class RefreshTokenIds {
+    private static final int ID_BYTES = 16;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    public static String of(String refreshToken) {
+        byte[] digest = SHA_256.get().digest(refreshToken.getBytes(StandardCharsets.US_ASCII));
+        return ENCODER.encodeToString(Arrays.copyOf(digest, ID_BYTES));
+    }
+}
@@ -0,0 +1,94 @@
+package com.kb.jwttest.redis;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+
+/**
+ * 노드 로컬에 두는 refresh token 상태. 유효하다고 확인된 토큰 id(near-cache)와 폐기된 토큰 id(블룸 필터)를 함께 본다.
+ * <p>
+ * 폐기 필터는 확인한 id 수가 용량을 넘으면 새로 만들고, 그때 near-cache도 비워서 잊어버린 폐기 정보로 잘못 응답하지 않게 한다.
+ * near-cache 엔트리는 ttl이 지나면 사라지므로 무효화 메시지를 놓쳐도 오래된 응답은 ttl 이내로 제한된다.
+ */
+public class RefreshTokenNearCache {
+    public enum Lookup {
+        KNOWN_VALID,
+        MAYBE_REVOKED,
+        UNKNOWN
+    }
+
+    private final Cache<String, Boolean> validTokenIds;
+    private final long revokedCapacity;
+    private final double falsePositiveRate;
+    private volatile RevokedTokenFilter revokedTokenIds;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter uncertain;
+    private final Counter rollovers;
+
+    public RefreshTokenNearCache(long maximumSize, Duration ttl, long revokedCapacity, double falsePositiveRate, MeterRegistry meterRegistry) {
+        this.validTokenIds = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.revokedCapacity = revokedCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.revokedTokenIds = new RevokedTokenFilter(revokedCapacity, falsePositiveRate);
+
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        this.uncertain = lookupCounter(meterRegistry, "uncertain");
+        this.rollovers = Counter.builder("refresh.token.nearcache.revoked.rollovers")
+                .description("Times the revoked-token filter was full and rebuilt")
+                .register(meterRegistry);
+    }
+
+    public Lookup lookup(String tokenId) {
+        if (revokedTokenIds.mightContain(tokenId)) {
+            uncertain.increment();
+            return Lookup.MAYBE_REVOKED;
+        }
+
+        if (validTokenIds.getIfPresent(tokenId) != null) {
+            hits.increment();
+            return Lookup.KNOWN_VALID;
+        }
+
+        misses.increment();
+        return Lookup.UNKNOWN;
+    }
+
+    public void markValid(String tokenId) {
+        validTokenIds.put(tokenId, Boolean.TRUE);
+    }
+
+    public void markRevoked(String tokenId) {
+        RevokedTokenFilter filter = revokedTokenIds;
+
+        if (filter.insertions() >= revokedCapacity)
+            filter = rollover(filter);
+
+        filter.put(tokenId);
+        validTokenIds.invalidate(tokenId);
+    }
+
+    private synchronized RevokedTokenFilter rollover(RevokedTokenFilter full) {
+        if (revokedTokenIds == full) {
+            revokedTokenIds = new RevokedTokenFilter(revokedCapacity, falsePositiveRate);
+            validTokenIds.invalidateAll();
+            rollovers.increment();
+        }
+        return revokedTokenIds;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("refresh.token.nearcache.lookups")
+                .description("Refresh token existence checks answered by the near-cache")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,13 @@
+package com.kb.jwttest.redis;
+
+/**
+ * 사용자의 로그인 세션(살아 있는 refresh token) 하나.
+ *
+ * @param tokenId    {@link RefreshTokenIds}로 만든 토큰 id
+ * @param expiration 만료 시각 (epoch millis)
+ */
+public record RefreshTokenSession(
+        String tokenId,
+        long expiration
+) {
+}
@@ -0,0 +1,50 @@
+package com.kb.jwttest.redis;
+
+import java.util.List;
+
+/**
+ * 발급된 refresh token 저장소. 토큰 원문 대신 {@link RefreshTokenIds}로 만든 짧은 id를 키로 쓴다.
+ * 저장할 때 받는 expiration은 토큰의 exp(epoch millis)이고, 저장된 토큰은 그 시각에 함께 사라진다.
+ * 토큰은 사용자별 세션 인덱스에도 함께 기록되므로 사용자 단위 조회/폐기 비용은 그 사용자의 세션 수에만 비례한다.
+ */
+public interface RefreshTokenStore {
+    /**
+     * family마다 남겨 두는 교체 기록 수. 그보다 오래전에 교체된 토큰이 다시 들어오면 재사용 감지 없이 NOT_FOUND로 거절된다.
+     */
+    int MAX_ROTATED_TOKENS = 32;
+
+    /**
+     * 로그인으로 발급한 토큰을 저장한다. familyId는 토큰의 fid 클레임이다.
+     */
+    void save(String refreshToken, String familyId, String username, long expiration);
+
+    boolean exists(String refreshToken);
+
+    /**
+     * 기존 토큰이 있으면 지우고 새 토큰을 저장한다. 확인과 교체는 원자적으로 처리된다.
+     * 기존 토큰이 이미 교체된 토큰이면 같은 연산 안에서 동시 교체인지 재사용인지 판단한다({@link RotationResult.Status}).
+     */
+    RotationResult rotate(String oldToken, String newToken, String familyId, String username, long expiration);
+
+    boolean delete(String refreshToken);
+
+    /**
+     * 만료되지 않은 사용자 세션 목록. 만료 시각 오름차순.
+     */
+    List<RefreshTokenSession> findSessions(String username);
+
+    /**
+     * 사용자의 모든 refresh token을 폐기하고, 실제로 지운 토큰 id를 반환한다.
+     */
+    List<String> revokeAll(String username);
+
+    /**
+     * 여러 사용자의 세션을 한 번에 폐기한다. 구현체는 네트워크 왕복을 묶어서 처리한다.
+     */
+    List<String> revokeUsers(List<String> usernames);
+
+    /**
+     * 토큰 id로 여러 토큰을 한 번에 폐기하고, 실제로 지운 토큰 id를 반환한다.
+     */
+    List<String> revokeTokenIds(List<String> tokenIds);
+}
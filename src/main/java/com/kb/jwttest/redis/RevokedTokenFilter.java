@@ -0,0 +1,63 @@
+package com.kb.jwttest.redis;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 폐기된 refresh token id를 담는 블룸 필터. false면 확실히 폐기되지 않은 것이고, true면 폐기됐을 수도 있다.
+ * 토큰 id가 이미 SHA-256 값이므로 id의 앞/뒤 64비트를 두 해시 값으로 쓴다(double hashing).
+ */
+public class RevokedTokenFilter {
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashFunctions;
+    private final AtomicLong insertions = new AtomicLong();
+
+    public RevokedTokenFilter(long expectedInsertions, double falsePositiveRate) {
+        long optimalBits = (long) (-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) Math.max((optimalBits + 63) / 64, 1));
+        this.numBits = bits.length() * 64L;
+        this.numHashFunctions = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+    }
+
+    public void put(String tokenId) {
+        ByteBuffer hash = ByteBuffer.wrap(DECODER.decode(tokenId));
+        long h1 = hash.getLong();
+        long h2 = hash.getLong();
+
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = Math.floorMod(h1 + i * h2, numBits);
+            int word = (int) (index >>> 6);
+            long mask = 1L << index;
+
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0)
+                    break;
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+        insertions.incrementAndGet();
+    }
+
+    public boolean mightContain(String tokenId) {
+        ByteBuffer hash = ByteBuffer.wrap(DECODER.decode(tokenId));
+        long h1 = hash.getLong();
+        long h2 = hash.getLong();
+
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = Math.floorMod(h1 + i * h2, numBits);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    public long insertions() {
+        return insertions.get();
+    }
+}
@@ -0,0 +1,39 @@
+package com.kb.jwttest.redis;
+
+import java.util.List;
+
+/**
+ * refresh token 교체 결과. 재사용이 감지되면 family에서 함께 폐기한 토큰 id를 담는다.
+ */
+public record RotationResult(Status status, List<String> revokedTokenIds) {
+    public static final RotationResult ROTATED = new RotationResult(Status.ROTATED, List.of());
+    public static final RotationResult CONCURRENT = new RotationResult(Status.CONCURRENT, List.of());
+    public static final RotationResult NOT_FOUND = new RotationResult(Status.NOT_FOUND, List.of());
+
+    public static RotationResult reuseDetected(List<String> revokedTokenIds) {
+        return new RotationResult(Status.REUSE_DETECTED, revokedTokenIds);
+    }
+
+    /**
+     * 새 토큰이 저장됐는지. 동시 교체도 같은 family의 토큰을 하나 더 저장한다.
+     */
+    public boolean isIssued() {
+        return status == Status.ROTATED || status == Status.CONCURRENT;
+    }
+
+    public enum Status {
+        ROTATED,
+        /**
+         * 기존 토큰은 grace window 안에서 방금 다른 요청이 교체했다. 두 탭이 동시에 재발급한 경우로 보고 같은 family의 토큰을 하나 더 발급했다.
+         */
+        CONCURRENT,
+        /**
+         * grace window가 지난 뒤에 이미 교체된 토큰이 다시 들어왔다. 탈취된 토큰일 수 있으므로 family 전체를 폐기했다.
+         */
+        REUSE_DETECTED,
+        /**
+         * 기존 토큰이 없다. 로그아웃됐거나 family가 이미 폐기됐다.
+         */
+        NOT_FOUND
+    }
+}
@@ -0,0 +1,149 @@
+package com.kb.jwttest.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 현재 장비에서 해시 한 번이 목표 시간 안에 들어오는 가장 높은 cost로 동작하는 BCrypt 인코더.
+ * 저장된 해시의 cost가 현재 cost보다 낮을 때만 {@link #upgradeEncoding(String)}이 true를 반환해서 로그인 시 재해시 대상이 된다.
+ * 노드마다 장비가 달라 cost가 다르게 잡혀도 해시가 노드를 오가며 내려갔다 올라가지 않도록 cost는 올리기만 한다.
+ * <p>
+ * MeterRegistry를 넘기면 해시/검증 한 번에 걸린 시간을 {@code auth.bcrypt} 타이머로 남긴다. 검증 시간은 저장된 해시의 cost로 정해지므로
+ * matches는 저장된 해시의 cost로 태그를 붙인다. minStrength..maxStrength의 타이머는 미리 등록하고, 그 밖의 cost(이전/가져온 해시)는 처음 볼 때 등록한다.
+ */
+@Slf4j
+public class AdaptiveBCryptPasswordEncoder extends BCryptPasswordEncoder {
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2(a|y|b)?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+    private static final String SAMPLE_PASSWORD = "calibration-password";
+
+    private final int strength;
+    private final MeterRegistry meterRegistry;
+    private final Timer encodeTime;
+    private final int minTimedStrength;
+    private final Timer[] matchesTimes;
+
+    public AdaptiveBCryptPasswordEncoder(int strength) {
+        this(strength, null);
+    }
+
+    public AdaptiveBCryptPasswordEncoder(int strength, MeterRegistry meterRegistry) {
+        this(strength, strength, strength, meterRegistry);
+    }
+
+    /**
+     * @param minStrength matches 타이머를 미리 등록할 cost 범위의 시작
+     * @param maxStrength matches 타이머를 미리 등록할 cost 범위의 끝
+     */
+    public AdaptiveBCryptPasswordEncoder(int strength, int minStrength, int maxStrength, MeterRegistry meterRegistry) {
+        super(strength);
+        this.strength = strength;
+        this.meterRegistry = meterRegistry;
+        this.encodeTime = meterRegistry != null ? timer(meterRegistry, "encode", strength) : null;
+        this.minTimedStrength = Math.min(minStrength, strength);
+        int maxTimedStrength = Math.max(maxStrength, strength);
+        this.matchesTimes = new Timer[maxTimedStrength - minTimedStrength + 1];
+        if (meterRegistry != null) {
+            for (int cost = minTimedStrength; cost <= maxTimedStrength; cost++)
+                matchesTimes[cost - minTimedStrength] = timer(meterRegistry, "matches", cost);
+        }
+    }
+
+    /**
+     * minStrength부터 cost를 하나씩 올려가며 실제로 해시해 보고, 목표 시간을 넘지 않는 가장 높은 cost를 고른다.
+     * cost가 1 오를 때마다 시간이 두 배가 되므로 측정에 드는 시간은 대략 목표 시간의 두 배 이내다.
+     */
+    public static AdaptiveBCryptPasswordEncoder calibrated(long targetMs, int minStrength, int maxStrength) {
+        return calibrated(targetMs, minStrength, maxStrength, null);
+    }
+
+    public static AdaptiveBCryptPasswordEncoder calibrated(long targetMs, int minStrength, int maxStrength, MeterRegistry meterRegistry) {
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(4)); // 워밍업
+
+        int strength = minStrength;
+        long elapsedMs = measure(strength);
+
+        while (strength < maxStrength && elapsedMs * 2 <= targetMs) {
+            strength++;
+            elapsedMs = measure(strength);
+        }
+
+        log.info("bcrypt strength {} ({} ms per hash, target {} ms)", strength, elapsedMs, targetMs);
+        return new AdaptiveBCryptPasswordEncoder(strength, minStrength, maxStrength, meterRegistry);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        if (encodeTime == null)
+            return super.encode(rawPassword);
+
+        long start = System.nanoTime();
+        try {
+            return super.encode(rawPassword);
+        } finally {
+            encodeTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        int encodedStrength = strengthOf(encodedPassword);
+        if (meterRegistry == null || encodedStrength == 0)
+            return super.matches(rawPassword, encodedPassword);
+
+        long start = System.nanoTime();
+        try {
+            return super.matches(rawPassword, encodedPassword);
+        } finally {
+            matchesTimer(encodedStrength).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer matchesTimer(int encodedStrength) {
+        int index = encodedStrength - minTimedStrength;
+        if (index >= 0 && index < matchesTimes.length)
+            return matchesTimes[index];
+        return timer(meterRegistry, "matches", encodedStrength);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int encodedStrength = strengthOf(encodedPassword);
+        return encodedStrength > 0 && encodedStrength < strength;
+    }
+
+    /**
+     * 해시 문자열에 기록된 cost. BCrypt 형식이 아니면 0
+     */
+    public static int strengthOf(String encodedPassword) {
+        if (encodedPassword == null)
+            return 0;
+
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.matches() ? Integer.parseInt(matcher.group(2)) : 0;
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String operation, int strength) {
+        return Timer.builder("auth.bcrypt")
+                .description("Time spent on a single BCrypt hash or verification")
+                .tag("operation", operation)
+                .tag("strength", String.valueOf(strength))
+                .register(meterRegistry);
+    }
+
+    private static long measure(int strength) {
+        long start = System.nanoTime();
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(strength));
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -12,10 +12,11 @@ import org.springframework.stereotype.Service;
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        UserEntity userEntity = userRepository.findByUsername(username)
+        UserEntity userEntity = userDetailsCache.get(username, userRepository::findByUsername)
                 .orElseThrow();
         return new CustomUserDetails(userEntity);
     }
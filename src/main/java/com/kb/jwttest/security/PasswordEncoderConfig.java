@@ -0,0 +1,25 @@
+package com.kb.jwttest.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PasswordEncoderConfig {
+
+    /**
+     * security.bcrypt.targetMs가 0이면 보정 없이 security.bcrypt.strength를 그대로 쓴다.
+     */
+    @Bean
+    public AdaptiveBCryptPasswordEncoder bCryptPasswordEncoder(MeterRegistry meterRegistry,
+                                                               @Value("${security.bcrypt.targetMs:0}") long targetMs,
+                                                               @Value("${security.bcrypt.strength:10}") int strength,
+                                                               @Value("${security.bcrypt.minStrength:10}") int minStrength,
+                                                               @Value("${security.bcrypt.maxStrength:16}") int maxStrength) {
+        if (targetMs <= 0)
+            return new AdaptiveBCryptPasswordEncoder(strength, minStrength, maxStrength, meterRegistry);
+
+        return AdaptiveBCryptPasswordEncoder.calibrated(targetMs, minStrength, maxStrength, meterRegistry);
+    }
+}
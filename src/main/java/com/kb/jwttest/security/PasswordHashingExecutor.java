@@ -0,0 +1,103 @@
+package com.kb.jwttest.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt 해시/검증 전용 스레드 풀. 스레드 수와 대기열 크기가 정해져 있어서 로그인이 몰려도 톰캣 요청 스레드를 다 잡아먹지 않는다.
+ * 대기열이 가득 차면 {@link RejectedExecutionException}을 바로 던지고, 호출한 쪽은 503으로 응답한다.
+ * <p>
+ * 가상 스레드 모드(virtual 프로필)에서는 같은 개수 제한을 유지한 채 가상 스레드로 실행해서, 인증 중의 사용자 조회가 캐리어 스레드를 막지 않게 한다.
+ */
+@Component
+public class PasswordHashingExecutor {
+    private final ThreadPoolExecutor executor;
+    private final Timer hashLatency;
+    private final Timer queueWait;
+    private final Counter rejections;
+
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+                                   Environment environment,
+                                   @Value("${password.hashing.threads:0}") int threads,
+                                   @Value("${password.hashing.queueCapacity:100}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory(environment),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("password.hashing.queue", executor, e -> e.getQueue().size())
+                .description("Password hashing tasks waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing tasks running")
+                .register(meterRegistry);
+        this.hashLatency = Timer.builder("password.hashing")
+                .description("Time spent running a password hashing task")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("password.hashing.wait")
+                .description("Time a password hashing task waited in the queue")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("password.hashing.rejected")
+                .description("Password hashing tasks rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    public void execute(Runnable task) throws RejectedExecutionException {
+        long submittedAt = System.nanoTime();
+
+        try {
+            executor.execute(() -> {
+                queueWait.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                hashLatency.record(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw e;
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) throws RejectedExecutionException {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        execute(() -> {
+            try {
+                future.complete(task.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    private static ThreadFactory threadFactory(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment))
+            return new VirtualThreadTaskExecutor("password-hashing-").getVirtualThreadFactory();
+
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> new Thread(runnable, "password-hashing-" + sequence.incrementAndGet());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
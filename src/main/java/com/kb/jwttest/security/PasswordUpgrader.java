@@ -0,0 +1,64 @@
+package com.kb.jwttest.security;
+
+import com.kb.jwttest.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 로그인에 성공한 사용자의 저장된 해시 cost가 현재 cost보다 낮으면, 응답과 별개로 비밀번호를 다시 해시해서 저장한다.
+ * 해시만 해시 풀에서 하고, 사용자 조회와 저장은 ioExecutor에서 한다.
+ */
+@Slf4j
+@Component
+public class PasswordUpgrader {
+    private final AdaptiveBCryptPasswordEncoder passwordEncoder;
+    private final UserRepository userRepository;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final UserDetailsCache userDetailsCache;
+    private final Executor ioExecutor;
+
+    public PasswordUpgrader(AdaptiveBCryptPasswordEncoder passwordEncoder,
+                            UserRepository userRepository,
+                            PasswordHashingExecutor passwordHashingExecutor,
+                            UserDetailsCache userDetailsCache,
+                            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor ioExecutor) {
+        this.passwordEncoder = passwordEncoder;
+        this.userRepository = userRepository;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.userDetailsCache = userDetailsCache;
+        this.ioExecutor = ioExecutor;
+    }
+
+    public void upgradeIfNeeded(String username, String encodedPassword, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(encodedPassword))
+            return;
+
+        try {
+            passwordHashingExecutor.submit(() -> passwordEncoder.encode(rawPassword))
+                    .thenAcceptAsync(upgraded -> upgrade(username, encodedPassword, upgraded), ioExecutor)
+                    .exceptionally(e -> {
+                        log.warn("password upgrade failed: {}", username, e);
+                        return null;
+                    });
+        } catch (RejectedExecutionException e) {
+            // 해시 대기열이 가득 차면 이번에는 건너뛰고 다음 로그인 때 다시 시도한다.
+            log.debug("password upgrade skipped: {}", username);
+        }
+    }
+
+    private void upgrade(String username, String encodedPassword, String upgraded) {
+        userRepository.findByUsername(username)
+                .filter(user -> encodedPassword.equals(user.getPassword())) // 그 사이 비밀번호가 바뀌었다면 덮어쓰지 않는다.
+                .ifPresent(user -> {
+                    user.changePassword(upgraded);
+                    userRepository.save(user);
+                    userDetailsCache.evict(username);
+                    log.info("password rehashed: {} (strength {})", username, passwordEncoder.getStrength());
+                });
+    }
+}
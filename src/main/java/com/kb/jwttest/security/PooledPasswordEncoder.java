@@ -0,0 +1,49 @@
+package com.kb.jwttest.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 해시/검증만 {@link PasswordHashingExecutor}에서 실행하고, 호출한 스레드는 결과를 기다리는 PasswordEncoder.
+ * 로그인 중의 사용자 조회나 토큰 저장 같은 I/O는 호출한 스레드에 남기고 해시 풀 자리는 BCrypt 계산에만 쓴다.
+ * 대기열이 가득 차면 {@link RejectedExecutionException}을 그대로 던진다.
+ */
+public class PooledPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
+    public PooledPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor passwordHashingExecutor) {
+        this.delegate = delegate;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return join(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return join(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T join(Supplier<T> task) {
+        try {
+            return passwordHashingExecutor.submit(task).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw e;
+        }
+    }
+}
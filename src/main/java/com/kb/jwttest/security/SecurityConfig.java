@@ -1,50 +1,61 @@
 package com.kb.jwttest.security;
 
 import com.kb.jwttest.jwt.*;
-import com.kb.jwttest.redis.RefreshTokenRepository;
+import com.kb.jwttest.redis.RefreshTokenStore;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.logout.LogoutFilter;
 import org.springframework.web.cors.CorsConfiguration;
 
 import java.util.Collections;
+import java.util.concurrent.Executor;
 
 @RequiredArgsConstructor
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
-    private final AuthenticationConfiguration authenticationConfiguration;
+    private final CustomUserDetailsService userDetailsService;
+    private final AdaptiveBCryptPasswordEncoder passwordEncoder;
     private final JwtUtils jwtUtils;
-    private final RefreshTokenRepository refreshTokenRepository;
+    private final AccessTokenRevocations accessTokenRevocations;
+    private final RefreshTokenStore refreshTokenStore;
     private final JwtService jwtService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final PasswordUpgrader passwordUpgrader;
+    private final MeterRegistry meterRegistry;
 
+    /**
+     * 비밀번호 검증만 해시 풀에서 실행하고, 사용자 조회는 로그인을 처리하는 스레드에서 한다({@link PooledPasswordEncoder}).
+     */
     @Bean
-    public AuthenticationManager authenticationManager() throws Exception {
-        return authenticationConfiguration.getAuthenticationManager();
+    public AuthenticationManager authenticationManager() {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(userDetailsService);
+        provider.setPasswordEncoder(new PooledPasswordEncoder(passwordEncoder, passwordHashingExecutor));
+        return new ProviderManager(provider);
     }
 
     @Bean
-    public UsernamePasswordAuthenticationFilter loginFilter() throws Exception {
-        return new LoginFilter(authenticationManager(), jwtUtils, refreshTokenRepository);
+    public UsernamePasswordAuthenticationFilter loginFilter(
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor ioExecutor) {
+        return new LoginFilter(authenticationManager(), jwtUtils, refreshTokenStore, ioExecutor, passwordUpgrader, meterRegistry);
     }
 
     @Bean
-    public BCryptPasswordEncoder bCryptPasswordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
-    @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, UsernamePasswordAuthenticationFilter loginFilter) throws Exception {
         return http
                 .cors(cors ->
                         cors.configurationSource(request -> {
@@ -62,16 +73,16 @@ public class SecurityConfig {
                 .formLogin(AbstractHttpConfigurer::disable)
                 .httpBasic(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/login", "/", "/join", "/reissue").permitAll()
-                        .requestMatchers("/admin").hasRole("ADMIN")
+                        .requestMatchers("/login", "/", "/join", "/reissue", "/.well-known/jwks.json").permitAll()
+                        .requestMatchers("/admin", "/admin/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
 
                 // JWT 방식은 세션을 STATELESS로 설정해야 한다.
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
 
-                .addFilterBefore(new JwtFilter(jwtUtils), LoginFilter.class)
-                .addFilterAt(loginFilter(), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(new JwtFilter(jwtUtils, accessTokenRevocations, meterRegistry), LoginFilter.class)
+                .addFilterAt(loginFilter, UsernamePasswordAuthenticationFilter.class)
                 .addFilterBefore(new CustomLogoutFilter(jwtService), LogoutFilter.class)
                 .build();
     }
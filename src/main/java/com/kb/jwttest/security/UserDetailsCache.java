@@ -0,0 +1,57 @@
+package com.kb.jwttest.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kb.jwttest.entity.UserEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * username 별 로그인 정보(해시된 비밀번호, 권한) 캐시. 크기 제한이 있고, 저장 후 ttl이 지나면 다시 조회한다.
+ * 가입, 비밀번호/권한 변경 시 {@link #evict(String)}로 무효화한다. 없는 사용자는 캐싱하지 않는다.
+ * 이 클래스는 노드 로컬 캐시만 지운다. 여러 노드에서는 {@link com.kb.jwttest.redis.RedisUserDetailsCache}가 다른 노드에도 알린다.
+ * <p>
+ * cache.gets{result=hit|miss}, cache.evictions 등은 cache=userDetails 태그로 남는다.
+ */
+public class UserDetailsCache {
+    private final Cache<String, UserAccount> cache;
+
+    public UserDetailsCache(MeterRegistry meterRegistry, long maximumSize, long ttlMs) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+    }
+
+    public Optional<UserEntity> get(String username, Function<String, Optional<UserEntity>> loader) {
+        UserAccount account = cache.get(username, key -> loader.apply(key).map(UserAccount::from).orElse(null));
+        return Optional.ofNullable(account).map(UserAccount::toEntity);
+    }
+
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    /**
+     * 영속성 컨텍스트와 무관하게 보관하기 위한 UserEntity의 불변 사본
+     */
+    private record UserAccount(String username, String password, String role) {
+        static UserAccount from(UserEntity user) {
+            return new UserAccount(user.getUsername(), user.getPassword(), user.getRole());
+        }
+
+        UserEntity toEntity() {
+            return UserEntity.builder()
+                    .username(username)
+                    .password(password)
+                    .role(role)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.kb.jwttest.service;
+
+import com.kb.jwttest.dto.RevocationProgress;
+import com.kb.jwttest.dto.RevocationTarget;
+import com.kb.jwttest.jwt.AccessTokenRevocations;
+import com.kb.jwttest.redis.RefreshTokenStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 장애 대응용 일괄 세션 폐기. 한 줄에 하나씩 들어오는 username 또는 토큰 id를 batchSize개씩 모아 파이프라인으로 폐기한다.
+ * 한 배치를 처리한 뒤에 다음 줄을 읽으므로 요청 본문이 아무리 커도 메모리에는 한 배치만 올라간다.
+ * username으로 폐기하면 이미 발급된 access token도 함께 폐기한다.
+ */
+@Slf4j
+@Service
+public class BulkRevocationService {
+    private final RefreshTokenStore refreshTokenStore;
+    private final AccessTokenRevocations accessTokenRevocations;
+    private final int defaultBatchSize;
+    private final int maxBatchSize;
+    private final Counter revokedTokens;
+
+    public BulkRevocationService(RefreshTokenStore refreshTokenStore,
+                                 AccessTokenRevocations accessTokenRevocations,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${jwt.revocation.batchSize:1000}") int defaultBatchSize,
+                                 @Value("${jwt.revocation.maxBatchSize:10000}") int maxBatchSize) {
+        this.refreshTokenStore = refreshTokenStore;
+        this.accessTokenRevocations = accessTokenRevocations;
+        this.defaultBatchSize = defaultBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.revokedTokens = Counter.builder("auth.tokens.revoked")
+                .description("Refresh tokens revoked, by reason")
+                .tag("reason", "bulk")
+                .register(meterRegistry);
+    }
+
+    public RevocationProgress revoke(BufferedReader reader, RevocationTarget target, Integer batchSize, Consumer<RevocationProgress> progressListener) throws IOException {
+        int size = batchSize == null ? defaultBatchSize : Math.min(Math.max(batchSize, 1), maxBatchSize);
+        long startedAt = System.nanoTime();
+        long processed = 0;
+        long revoked = 0;
+        List<String> batch = new ArrayList<>(size);
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String value = normalize(line);
+            if (value.isEmpty())
+                continue;
+
+            batch.add(value);
+            if (batch.size() < size)
+                continue;
+
+            revoked += apply(target, batch);
+            processed += batch.size();
+            batch.clear();
+            progressListener.accept(progress(processed, revoked, startedAt, false));
+        }
+
+        if (!batch.isEmpty()) {
+            revoked += apply(target, batch);
+            processed += batch.size();
+        }
+
+        RevocationProgress result = progress(processed, revoked, startedAt, true);
+        progressListener.accept(result);
+        log.info("bulk revocation finished. target={}, processed={}, revoked={}, elapsedMs={}", target, processed, revoked, result.elapsedMs());
+        return result;
+    }
+
+    private int apply(RevocationTarget target, List<String> batch) {
+        int revoked = switch (target) {
+            case USERNAME -> {
+                // refresh token을 먼저 지워야 그 사이 재발급받은 access token의 iat가 revoked-before보다 늦어지지 않는다.
+                int revokedSessions = refreshTokenStore.revokeUsers(batch).size();
+                accessTokenRevocations.revoke(batch);
+                yield revokedSessions;
+            }
+            case TOKEN_ID -> refreshTokenStore.revokeTokenIds(batch).size();
+        };
+        revokedTokens.increment(revoked);
+        return revoked;
+    }
+
+    private static RevocationProgress progress(long processed, long revoked, long startedAt, boolean done) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        long perSecond = elapsedMs > 0 ? processed * 1000 / elapsedMs : processed;
+        return new RevocationProgress(processed, revoked, elapsedMs, perSecond, done);
+    }
+
+    /**
+     * 일반 텍스트 한 줄 또는 NDJSON 문자열("alice") 한 줄을 받는다.
+     */
+    private static String normalize(String line) {
+        String value = line.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\""))
+            value = value.substring(1, value.length() - 1);
+        return value;
+    }
+}
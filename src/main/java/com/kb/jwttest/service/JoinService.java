@@ -3,22 +3,66 @@ package com.kb.jwttest.service;
 import com.kb.jwttest.UserRepository;
 import com.kb.jwttest.dto.UserInfoResponse;
 import com.kb.jwttest.dto.UserJoinCommand;
-import lombok.RequiredArgsConstructor;
+import com.kb.jwttest.entity.UserEntity;
+import com.kb.jwttest.security.PasswordHashingExecutor;
+import com.kb.jwttest.security.UserDetailsCache;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
-@RequiredArgsConstructor
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Service
 public class JoinService {
     private final UserRepository userRepository;
     private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final UserDetailsCache userDetailsCache;
+    private final Executor ioExecutor;
+
+    public JoinService(UserRepository userRepository,
+                       BCryptPasswordEncoder bCryptPasswordEncoder,
+                       PasswordHashingExecutor passwordHashingExecutor,
+                       UserDetailsCache userDetailsCache,
+                       @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor ioExecutor) {
+        this.userRepository = userRepository;
+        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.userDetailsCache = userDetailsCache;
+        this.ioExecutor = ioExecutor;
+    }
 
-    public UserInfoResponse join(UserJoinCommand command) {
+    /**
+     * 비밀번호 해시는 전용 스레드 풀에서 처리한다. 풀이 가득 차면 {@link java.util.concurrent.RejectedExecutionException}을 던진다.
+     * 저장은 해시 풀 스레드가 DB를 기다리며 로그인의 해시 자리를 차지하지 않도록 애플리케이션 task executor에서 한다.
+     * <p>
+     * 중복 확인은 따로 조회하지 않고 username 유니크 제약에 맡긴다. 동시에 같은 username으로 가입해도 한 건만 저장된다.
+     */
+    public CompletableFuture<UserInfoResponse> join(UserJoinCommand command) {
         String username = command.username();
 
-        if (userRepository.existsByUsername(username))
-            throw new IllegalArgumentException("이미 존재하는 회원입니다.");
+        return passwordHashingExecutor.submit(() -> command.toEntity(bCryptPasswordEncoder))
+                .thenApplyAsync(this::insert, ioExecutor)
+                .whenComplete((user, e) -> userDetailsCache.evict(username))
+                .thenApply(UserInfoResponse::from);
+    }
+
+    private UserEntity insert(UserEntity user) {
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateUsername(e))
+                throw new IllegalArgumentException("이미 존재하는 회원입니다.");
+            throw e;
+        }
+    }
 
-        return UserInfoResponse.from(userRepository.save(command.toEntity(bCryptPasswordEncoder)));
+    private static boolean isDuplicateUsername(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains(UserEntity.USERNAME_CONSTRAINT);
     }
 }
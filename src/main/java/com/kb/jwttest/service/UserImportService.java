@@ -0,0 +1,228 @@
+package com.kb.jwttest.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kb.jwttest.UserRepository;
+import com.kb.jwttest.dto.UserImportFormat;
+import com.kb.jwttest.dto.UserImportProgress;
+import com.kb.jwttest.dto.UserImportRow;
+import com.kb.jwttest.entity.UserEntity;
+import com.kb.jwttest.security.AdaptiveBCryptPasswordEncoder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 테넌트 온보딩용 일괄 가입. CSV(username,password[,role]) 또는 NDJSON 본문을 한 줄씩 읽어 batchSize개씩 처리한다.
+ * <p>
+ * 배치마다 이미 있는 username을 한 번에 조회해서 걸러낸 뒤, 비밀번호는 크기가 정해진 ForkJoinPool에서 병렬로 해시하고 JDBC 배치로 저장한다.
+ * 다음 배치를 해시하는 동안 이전 배치를 저장하므로 메모리에는 최대 두 배치만 올라간다.
+ * <p>
+ * 이미 BCrypt 해시인 비밀번호는 그대로 저장한다. 평문은 security.userImport.strength로 해시하고(0이면 현재 cost),
+ * cost가 현재 설정보다 낮으면 첫 로그인 때 {@link com.kb.jwttest.security.PasswordUpgrader}가 다시 해시한다.
+ */
+@Slf4j
+@Service
+public class UserImportService {
+    private final UserRepository userRepository;
+    private final AdaptiveBCryptPasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final ForkJoinPool hashingPool;
+    private final int batchSize;
+
+    public UserImportService(UserRepository userRepository,
+                             AdaptiveBCryptPasswordEncoder passwordEncoder,
+                             ObjectMapper objectMapper,
+                             @Value("${security.userImport.batchSize:1000}") int batchSize,
+                             @Value("${security.userImport.parallelism:0}") int parallelism,
+                             @Value("${security.userImport.strength:0}") int strength) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = strength > 0 ? new AdaptiveBCryptPasswordEncoder(strength) : passwordEncoder;
+        this.objectMapper = objectMapper;
+        this.hashingPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.batchSize = batchSize;
+    }
+
+    public UserImportProgress importUsers(BufferedReader reader, UserImportFormat format, Consumer<UserImportProgress> progressListener) throws IOException {
+        long startedAt = System.nanoTime();
+        Counts counts = new Counts();
+        PendingBatch pending = null;
+        List<UserImportRow> batch = new ArrayList<>(batchSize);
+
+        String line;
+        boolean firstLine = true;
+        while ((line = reader.readLine()) != null) {
+            boolean header = firstLine && format == UserImportFormat.CSV && line.trim().toLowerCase(Locale.ROOT).startsWith("username,");
+            firstLine = false;
+            if (header || !StringUtils.hasText(line))
+                continue;
+
+            UserImportRow row = parse(line.trim(), format);
+            if (row == null) {
+                counts.processed++;
+                counts.skipped++;
+                continue;
+            }
+
+            batch.add(row);
+            if (batch.size() < batchSize)
+                continue;
+
+            PendingBatch next = hash(batch);
+            batch = new ArrayList<>(batchSize);
+            if (pending != null) {
+                save(pending, counts);
+                progressListener.accept(progress(counts, startedAt, false));
+            }
+            pending = next;
+        }
+
+        PendingBatch last = batch.isEmpty() ? null : hash(batch);
+        if (pending != null)
+            save(pending, counts);
+        if (last != null)
+            save(last, counts);
+
+        UserImportProgress result = progress(counts, startedAt, true);
+        progressListener.accept(result);
+        log.info("user import finished. processed={}, imported={}, skipped={}, elapsedMs={}", counts.processed, counts.imported, counts.skipped, result.elapsedMs());
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashingPool.shutdown();
+    }
+
+    /**
+     * 배치 안의 중복과 이미 가입된 username을 거른 뒤 나머지를 해시하기 시작한다.
+     */
+    private PendingBatch hash(List<UserImportRow> batch) {
+        Map<String, UserImportRow> unique = new LinkedHashMap<>();
+        for (UserImportRow row : batch)
+            unique.putIfAbsent(row.username(), row);
+
+        Set<String> existing = new HashSet<>(userRepository.findExistingUsernames(unique.keySet()));
+        existing.forEach(unique::remove);
+
+        List<UserImportRow> rows = List.copyOf(unique.values());
+        CompletableFuture<List<UserEntity>> users = CompletableFuture.supplyAsync(
+                () -> rows.parallelStream().map(this::toEntity).toList(), hashingPool);
+
+        return new PendingBatch(batch.size(), batch.size() - rows.size(), users);
+    }
+
+    private void save(PendingBatch pending, Counts counts) {
+        List<UserEntity> users = pending.users().join();
+
+        int inserted = insert(users);
+        counts.processed += pending.rows();
+        counts.imported += inserted;
+        counts.skipped += pending.skipped() + (users.size() - inserted);
+    }
+
+    private int insert(List<UserEntity> users) {
+        if (users.isEmpty())
+            return 0;
+
+        try {
+            userRepository.saveAll(users);
+            return users.size();
+        } catch (DataIntegrityViolationException e) {
+            // 다른 배치나 동시에 들어온 가입과 username이 겹친 경우. 배치 전체가 롤백되므로 한 건씩 다시 넣는다.
+            return insertOneByOne(users);
+        }
+    }
+
+    private int insertOneByOne(List<UserEntity> users) {
+        int inserted = 0;
+
+        for (UserEntity user : users) {
+            try {
+                userRepository.saveAndFlush(UserEntity.builder()
+                        .username(user.getUsername())
+                        .password(user.getPassword())
+                        .role(user.getRole())
+                        .build());
+                inserted++;
+            } catch (DataIntegrityViolationException e) {
+                log.debug("user import skipped duplicate username: {}", user.getUsername());
+            }
+        }
+        return inserted;
+    }
+
+    private UserEntity toEntity(UserImportRow row) {
+        String password = AdaptiveBCryptPasswordEncoder.strengthOf(row.password()) > 0
+                ? row.password()
+                : passwordEncoder.encode(row.password());
+
+        return UserEntity.builder()
+                .username(row.username())
+                .password(password)
+                .role(row.role())
+                .build();
+    }
+
+    /**
+     * 형식이 맞지 않거나 username/password가 없는 줄은 null
+     */
+    private UserImportRow parse(String line, UserImportFormat format) {
+        UserImportRow row = switch (format) {
+            case CSV -> parseCsv(line);
+            case NDJSON -> parseJson(line);
+        };
+
+        if (row == null || !StringUtils.hasText(row.username()) || !StringUtils.hasText(row.password()))
+            return null;
+        return row;
+    }
+
+    private static UserImportRow parseCsv(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length < 2)
+            return null;
+
+        return new UserImportRow(columns[0].trim(), columns[1].trim(), columns.length > 2 ? columns[2].trim() : null);
+    }
+
+    private UserImportRow parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, UserImportRow.class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static UserImportProgress progress(Counts counts, long startedAt, boolean done) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        long perSecond = elapsedMs > 0 ? counts.processed * 1000 / elapsedMs : counts.processed;
+        return new UserImportProgress(counts.processed, counts.imported, counts.skipped, elapsedMs, perSecond, done);
+    }
+
+    private record PendingBatch(int rows, int skipped, CompletableFuture<List<UserEntity>> users) {
+    }
+
+    private static class Counts {
+        long processed;
+        long imported;
+        long skipped;
+    }
+}
@@ -0,0 +1,13 @@
+-- refresh token을 지우고 사용자별 세션 인덱스에서도 뺀다. 단건 로그아웃과 토큰 id 일괄 폐기에서 같이 쓴다.
+-- 사용자 인덱스 키는 토큰 값(username)으로 만들기 때문에 KEYS로 넘기지 않는다(단일 노드 Redis 기준).
+-- KEYS[1] : 토큰 키
+-- ARGV[1] : 사용자 세션 인덱스 키 prefix, ARGV[2] : 토큰 id
+-- return  : 1 = 삭제, 0 = 없음
+local username = redis.call('GET', KEYS[1])
+if not username then
+    return 0
+end
+
+redis.call('DEL', KEYS[1])
+redis.call('ZREM', ARGV[1] .. username, ARGV[2])
+return 1
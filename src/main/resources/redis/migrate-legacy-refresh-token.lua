@@ -0,0 +1,27 @@
+-- 이전 @RedisHash 구조에만 있는 refresh token을 지운다. 새 토큰 키가 주어지면 같은 왕복에서 새 구조로 교체해 저장한다.
+-- 보조 키는 원본 hash 키로 만들기 때문에 KEYS로 넘기지 않는다(단일 노드 Redis 기준).
+-- KEYS[1] : 이전 hash 키 (refresh_token:{jwt})
+-- KEYS[2..4] : (교체할 때만) 새 토큰 키, 사용자 세션 인덱스 키, family 키
+-- ARGV[1] : 키스페이스 set (refresh_token), ARGV[2] : 이전 토큰(JWT 원문), ARGV[3] : 이전 인덱스 키 prefix (refresh_token:token:)
+-- ARGV[4..8] : (교체할 때만) username, 새 토큰 TTL (ms), 새 토큰 id, 새 토큰 만료 시각 (epoch ms), 현재 시각 (epoch ms)
+-- return  : 1 = 이전 토큰이 있어서 지웠다(교체했다), 0 = 없음
+if redis.call('EXISTS', KEYS[1]) == 0 then
+    return 0
+end
+
+redis.call('DEL', KEYS[1], KEYS[1] .. ':idx', KEYS[1] .. ':phantom', ARGV[3] .. ARGV[2])
+redis.call('SREM', ARGV[1], ARGV[2])
+
+if KEYS[2] then
+    redis.call('SET', KEYS[2], ARGV[4], 'PX', ARGV[5])
+    redis.call('HSET', KEYS[4], 't:' .. ARGV[6], '1')
+    redis.call('PEXPIREAT', KEYS[4], ARGV[7])
+
+    redis.call('ZADD', KEYS[3], ARGV[7], ARGV[6])
+    redis.call('ZREMRANGEBYSCORE', KEYS[3], '-inf', ARGV[8])
+    local last = redis.call('ZRANGE', KEYS[3], -1, -1, 'WITHSCORES')
+    if last[2] then
+        redis.call('PEXPIREAT', KEYS[3], last[2])
+    end
+end
+return 1
@@ -0,0 +1,18 @@
+-- 이전 @RedisHash 구조에서 남은 키를 지운다.
+-- KEYS    : 지울 키 목록
+-- ARGV[1] : 키스페이스 set (refresh_token), ARGV[2] : set에서 뺄 멤버(토큰). 없으면 생략
+-- return  : {지운 키/멤버 수, 지운 키들이 차지하던 메모리(bytes)}
+local reclaimed = 0
+local freed = 0
+for _, key in ipairs(KEYS) do
+    local usage = redis.call('MEMORY', 'USAGE', key)
+    if usage then
+        freed = freed + usage
+        reclaimed = reclaimed + redis.call('DEL', key)
+    end
+end
+
+if ARGV[2] then
+    reclaimed = reclaimed + redis.call('SREM', ARGV[1], ARGV[2])
+end
+return {reclaimed, freed}
@@ -0,0 +1,21 @@
+-- 사용자들의 access token revoked-before 시각을 올리고, 실제로 올린 사용자를 한 메시지로 다른 노드에 알린다.
+-- 시각은 커지는 방향으로만 바뀐다.
+-- KEYS[1] : revoked-before zset (member = username, score = epoch millis)
+-- ARGV[1] : 채널
+-- ARGV[2] : revoked-before 시각
+-- ARGV[3..] : username
+-- return  : 시각을 올린 사용자 수
+local epoch = tonumber(ARGV[2])
+local raised = {}
+for i = 3, #ARGV do
+    local current = redis.call('ZSCORE', KEYS[1], ARGV[i])
+    if not current or tonumber(current) < epoch then
+        redis.call('ZADD', KEYS[1], epoch, ARGV[i])
+        raised[#raised + 1] = ARGV[i]
+    end
+end
+
+if #raised > 0 then
+    redis.call('PUBLISH', ARGV[1], ARGV[2] .. '\n' .. table.concat(raised, '\n'))
+end
+return #raised
@@ -0,0 +1,14 @@
+-- 사용자의 모든 refresh token을 지운다. 비용은 해당 사용자의 세션 수에만 비례한다.
+-- KEYS[1] : 사용자 세션 인덱스 키
+-- ARGV[1] : 토큰 키 prefix
+-- return  : 실제로 지운 토큰 id 목록
+local ids = redis.call('ZRANGE', KEYS[1], 0, -1)
+local revoked = {}
+for _, id in ipairs(ids) do
+    if redis.call('DEL', ARGV[1] .. id) == 1 then
+        revoked[#revoked + 1] = id
+    end
+end
+
+redis.call('DEL', KEYS[1])
+return revoked
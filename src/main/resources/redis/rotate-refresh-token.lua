@@ -0,0 +1,96 @@
+-- refresh token 교체를 한 번의 왕복으로 처리한다. 사용자별 세션 인덱스와 token family도 같이 갱신한다.
+-- family 해시의 필드: t:{id} = 살아 있는 토큰, r:{id} = 교체되어 사라진 토큰(값은 교체 시각). family는 가장 최근 토큰과 함께 만료된다.
+-- r: 필드는 최근 ARGV[9]개만 남긴다. 그보다 오래된 토큰이 다시 들어오면 재사용 감지 없이 기존 토큰 없음으로 거절된다.
+-- 재사용 시 폐기할 토큰 키는 family에서 읽어서 만들기 때문에 KEYS로 넘기지 않는다(단일 노드 Redis 기준).
+-- KEYS[1] : 기존 토큰 키, KEYS[2] : 새 토큰 키, KEYS[3] : 사용자 세션 인덱스 키, KEYS[4] : family 키
+-- ARGV[1] : username, ARGV[2] : 새 토큰 TTL (ms), ARGV[3] : 기존 토큰 id, ARGV[4] : 새 토큰 id,
+-- ARGV[5] : 새 토큰 만료 시각 (epoch ms), ARGV[6] : 현재 시각 (epoch ms), ARGV[7] : grace window (ms), ARGV[8] : 토큰 키 prefix,
+-- ARGV[9] : 남겨 둘 교체 기록(r:) 수
+-- return  : {1} = 교체 성공, {2} = grace window 안의 동시 교체(같은 family로 새 토큰 저장),
+--           {3, 폐기한 토큰 id...} = 재사용 감지(family 전체 폐기), {0} = 기존 토큰 없음(로그아웃/폐기로 family에 살아 있는 토큰이 없는 경우 포함)
+local function issue()
+    redis.call('SET', KEYS[2], ARGV[1], 'PX', ARGV[2])
+    redis.call('HSET', KEYS[4], 't:' .. ARGV[4], '1')
+    redis.call('PEXPIREAT', KEYS[4], ARGV[5])
+
+    redis.call('ZADD', KEYS[3], ARGV[5], ARGV[4])
+    redis.call('ZREMRANGEBYSCORE', KEYS[3], '-inf', ARGV[6])
+    local last = redis.call('ZRANGE', KEYS[3], -1, -1, 'WITHSCORES')
+    if last[2] then
+        redis.call('PEXPIREAT', KEYS[3], last[2])
+    end
+end
+
+-- 로그아웃/폐기는 토큰 키만 지우므로, 키가 없는 t: 필드는 여기서 정리하고 남은 살아 있는 토큰이 있는지 본다.
+local function hasLiveToken()
+    local live = false
+    for _, field in ipairs(redis.call('HKEYS', KEYS[4])) do
+        if string.sub(field, 1, 2) == 't:' then
+            if redis.call('EXISTS', ARGV[8] .. string.sub(field, 3)) == 1 then
+                live = true
+            else
+                redis.call('HDEL', KEYS[4], field)
+            end
+        end
+    end
+    return live
+end
+
+local function trimRotated()
+    if redis.call('HLEN', KEYS[4]) <= tonumber(ARGV[9]) then
+        return
+    end
+
+    local fields = redis.call('HGETALL', KEYS[4])
+    local rotated = {}
+    for i = 1, #fields, 2 do
+        if string.sub(fields[i], 1, 2) == 'r:' then
+            rotated[#rotated + 1] = {fields[i], tonumber(fields[i + 1])}
+        end
+    end
+
+    local excess = #rotated - tonumber(ARGV[9])
+    if excess <= 0 then
+        return
+    end
+    table.sort(rotated, function(a, b) return a[2] < b[2] end)
+    for i = 1, excess do
+        redis.call('HDEL', KEYS[4], rotated[i][1])
+    end
+end
+
+if redis.call('DEL', KEYS[1]) == 1 then
+    redis.call('ZREM', KEYS[3], ARGV[3])
+    redis.call('HDEL', KEYS[4], 't:' .. ARGV[3])
+    redis.call('HSET', KEYS[4], 'r:' .. ARGV[3], ARGV[6])
+    trimRotated()
+    issue()
+    return {1}
+end
+
+local rotatedAt = redis.call('HGET', KEYS[4], 'r:' .. ARGV[3])
+if not rotatedAt then
+    return {0}
+end
+
+if tonumber(ARGV[6]) - tonumber(rotatedAt) <= tonumber(ARGV[7]) then
+    -- 교체 직후 로그아웃/폐기된 family는 grace window 안이라도 새 토큰을 만들지 않는다.
+    if not hasLiveToken() then
+        return {0}
+    end
+    issue()
+    return {2}
+end
+
+local result = {3}
+for _, field in ipairs(redis.call('HKEYS', KEYS[4])) do
+    if string.sub(field, 1, 2) == 't:' then
+        local id = string.sub(field, 3)
+        if redis.call('DEL', ARGV[8] .. id) == 1 then
+            result[#result + 1] = id
+        end
+        redis.call('ZREM', KEYS[3], id)
+    end
+end
+redis.call('DEL', KEYS[4])
+return result
@@ -0,0 +1,14 @@
+-- refresh token을 저장하고 사용자별 세션 인덱스(zset, score = 만료 시각)와 token family에 함께 넣는다.
+-- KEYS[1] : 토큰 키, KEYS[2] : 사용자 세션 인덱스 키, KEYS[3] : family 키
+-- ARGV[1] : username, ARGV[2] : TTL (ms), ARGV[3] : 토큰 id, ARGV[4] : 만료 시각 (epoch ms), ARGV[5] : 현재 시각 (epoch ms)
+redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+redis.call('HSET', KEYS[3], 't:' .. ARGV[3], '1')
+redis.call('PEXPIREAT', KEYS[3], ARGV[4])
+
+redis.call('ZADD', KEYS[2], ARGV[4], ARGV[3])
+redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', ARGV[5])
+local last = redis.call('ZRANGE', KEYS[2], -1, -1, 'WITHSCORES')
+if last[2] then
+    redis.call('PEXPIREAT', KEYS[2], last[2])
+end
+return 1
@@ -0,0 +1,9 @@
+-- SCAN 또는 SSCAN을 딱 한 번 호출한다. Spring의 Cursor는 일치하는 원소가 나올 때까지 SCAN을 계속 보내므로,
+-- 호출 한 번의 작업량을 COUNT로 묶어 두기 위해 스크립트로 감싼다.
+-- KEYS[1] : 있으면 SSCAN할 set, 없으면 키 전체를 SCAN
+-- ARGV[1] : 커서, ARGV[2] : COUNT, ARGV[3] : MATCH 패턴(SCAN만)
+-- return  : {다음 커서("0"이면 한 바퀴 끝), 원소 목록}
+if KEYS[1] then
+    return redis.call('SSCAN', KEYS[1], ARGV[1], 'COUNT', ARGV[2])
+end
+return redis.call('SCAN', ARGV[1], 'MATCH', ARGV[3], 'COUNT', ARGV[2])
@@ -4,8 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kb.jwttest.dto.UserJoinCommand;
 import com.kb.jwttest.entity.UserEntity;
 import com.kb.jwttest.jwt.JwtUtils;
-import com.kb.jwttest.redis.RefreshToken;
-import com.kb.jwttest.redis.RefreshTokenRepository;
+import com.kb.jwttest.redis.RefreshTokenStore;
+import com.kb.jwttest.service.JoinService;
 import jakarta.servlet.http.Cookie;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
@@ -24,20 +24,25 @@ import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @AutoConfigureMockMvc
-@SpringBootTest
+@SpringBootTest(properties = "jwt.store.type=memory")
 class JwtTest {
     @Autowired MockMvc mvc;
     @Autowired ObjectMapper objectMapper;
     @Autowired UserRepository userRepository;
     @Autowired BCryptPasswordEncoder bCryptPasswordEncoder;
     @Autowired JwtUtils jwtUtils;
-    @Autowired RefreshTokenRepository refreshTokenRepository;
+    @Autowired RefreshTokenStore refreshTokenStore;
+    @Autowired JoinService joinService;
 
     @AfterEach
     void tearDown() {
@@ -51,11 +56,13 @@ class JwtTest {
         UserJoinCommand userJoinCommand = new UserJoinCommand("산드로", "1234");
 
         // When
-        ResultActions resultActions = mvc.perform(post("/join")
-                .content(objectMapper.writeValueAsString(userJoinCommand))
-                .contentType(MediaType.APPLICATION_JSON_VALUE)
-                .characterEncoding(StandardCharsets.UTF_8)
-        );
+        MvcResult asyncResult = mvc.perform(post("/join")
+                        .content(objectMapper.writeValueAsString(userJoinCommand))
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .characterEncoding(StandardCharsets.UTF_8))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        ResultActions resultActions = mvc.perform(asyncDispatch(asyncResult));
 
         // Then
         resultActions
@@ -74,6 +81,21 @@ class JwtTest {
         assertThat(userEntity.getRole()).isEqualTo("ROLE_ADMIN");
     }
 
+    @DisplayName("이미 존재하는 username으로 가입하면 실패하고 한 건만 저장된다.")
+    @Test
+    void joinDuplicate() {
+        // Given
+        UserJoinCommand userJoinCommand = new UserJoinCommand("산드로", "1234");
+        joinService.join(userJoinCommand).join();
+
+        // When & Then
+        assertThatThrownBy(() -> joinService.join(userJoinCommand).join())
+                .hasCauseInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("이미 존재하는 회원입니다.");
+
+        assertThat(userRepository.findAll()).hasSize(1);
+    }
+
     @DisplayName("로그인 성공 시 accessToken,refreshToken이 발급되어야 한다.")
     @Test
     void login() throws Exception {
@@ -81,12 +103,12 @@ class JwtTest {
         userRepository.save(UserEntity.builder().username("산드로").password(bCryptPasswordEncoder.encode("1234")).build());
 
         // When
-        ResultActions resultActions = mvc.perform(post("/login")
+        ResultActions resultActions = awaitLogin(mvc.perform(post("/login")
                 .param("username", "산드로")
                 .param("password", "1234")
                 .contentType(MediaType.APPLICATION_FORM_URLENCODED_VALUE)
                 .characterEncoding(StandardCharsets.UTF_8)
-        );
+        ));
 
         // Then
         MvcResult mvcResult = resultActions
@@ -110,8 +132,7 @@ class JwtTest {
 
         String refresh = mvcResult.getResponse().getCookie("refresh").getValue();
 
-        RefreshToken foundRefreshToken = refreshTokenRepository.findByToken(refresh).orElseThrow();
-        assertThat(foundRefreshToken).isNotNull();
+        assertThat(refreshTokenStore.exists(refresh)).isTrue();
     }
 
     @DisplayName("인증이 필요한 자원 요청 시 토큰이 유효하지 않은 경우 자원 접근이 거부된다.")
@@ -228,7 +249,87 @@ class JwtTest {
         assertThat(response.getHeader("access")).isNull();
         assertThat(response.getCookie("refresh").getValue()).isNull();
 
-        assertThat(refreshTokenRepository.existsByToken(refreshToken)).isFalse();
+        assertThat(refreshTokenStore.exists(refreshToken)).isFalse();
+    }
+
+    @DisplayName("관리자는 사용자의 모든 세션을 조회하고 폐기할 수 있다.")
+    @Test
+    void revokeSessions() throws Exception {
+        // Given
+        MockHttpServletResponse tokenResponse = getTokenResponse();
+        String accessToken = tokenResponse.getHeader("access");
+        String refreshToken = tokenResponse.getCookie("refresh").getValue();
+
+        mvc.perform(get("/admin/users/{username}/sessions", "산드로")
+                        .header("access", accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        // When
+        ResultActions resultActions = mvc.perform(delete("/admin/users/{username}/sessions", "산드로")
+                .header("access", accessToken)
+        );
+
+        // Then
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.revoked").value(1))
+                .andDo(print());
+
+        assertThat(refreshTokenStore.exists(refreshToken)).isFalse();
+        assertThat(refreshTokenStore.findSessions("산드로")).isEmpty();
+    }
+
+    @DisplayName("관리자는 여러 사용자의 세션을 한 번에 폐기할 수 있다.")
+    @Test
+    void bulkRevocation() throws Exception {
+        // Given
+        MockHttpServletResponse tokenResponse = getTokenResponse();
+        String accessToken = tokenResponse.getHeader("access");
+        String refreshToken = tokenResponse.getCookie("refresh").getValue();
+
+        // When
+        ResultActions resultActions = mvc.perform(post("/admin/revocations")
+                .param("type", "USERNAME")
+                .header("access", accessToken)
+                .contentType(MediaType.TEXT_PLAIN)
+                .characterEncoding(StandardCharsets.UTF_8)
+                .content("산드로\nunknown\n")
+        );
+
+        // Then
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"done\":true")))
+                .andDo(print());
+
+        assertThat(refreshTokenStore.exists(refreshToken)).isFalse();
+    }
+
+    @DisplayName("관리자는 CSV로 사용자를 일괄 가입시킬 수 있고, 이미 있는 username은 건너뛴다.")
+    @Test
+    void importUsers() throws Exception {
+        // Given
+        String accessToken = getAccessToken();
+
+        // When
+        ResultActions resultActions = mvc.perform(post("/admin/users/import")
+                .param("format", "CSV")
+                .header("access", accessToken)
+                .contentType("text/csv")
+                .characterEncoding(StandardCharsets.UTF_8)
+                .content("username,password\nalice,1234\n산드로,1234\nbob,1234,ROLE_USER\n")
+        );
+
+        // Then
+        resultActions
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"imported\":2,\"skipped\":1")))
+                .andDo(print());
+
+        assertThat(userRepository.findAll()).hasSize(3);
+        assertThat(bCryptPasswordEncoder.matches("1234", userRepository.findByUsername("alice").orElseThrow().getPassword())).isTrue();
+        assertThat(userRepository.findByUsername("bob").orElseThrow().getRole()).isEqualTo("ROLE_USER");
     }
 
     private String getAccessToken() throws Exception {
@@ -242,13 +343,27 @@ class JwtTest {
     private MockHttpServletResponse getTokenResponse() throws Exception {
         userRepository.save(UserEntity.builder().username("산드로").password(bCryptPasswordEncoder.encode("1234")).build());
 
-        return mvc.perform(post("/login")
+        return awaitLogin(mvc.perform(post("/login")
                         .param("username", "산드로")
                         .param("password", "1234")
                         .contentType(MediaType.APPLICATION_FORM_URLENCODED_VALUE)
                         .characterEncoding(StandardCharsets.UTF_8)
-                ).andDo(print())
+                )).andDo(print())
                 .andReturn()
                 .getResponse();
     }
+
+    /**
+     * 로그인은 비밀번호 해시 스레드 풀에서 비동기로 처리되므로 응답이 완료될 때까지 기다린다. 5초 안에 끝나지 않으면 실패한다.
+     */
+    private ResultActions awaitLogin(ResultActions resultActions) throws InterruptedException {
+        MvcResult mvcResult = resultActions.andReturn();
+        long deadline = System.currentTimeMillis() + 5_000;
+
+        while (mvcResult.getRequest().isAsyncStarted() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        assertThat(mvcResult.getRequest().isAsyncStarted()).as("login did not complete within 5s").isFalse();
+        return resultActions;
+    }
 }
@@ -0,0 +1,82 @@
+package com.kb.jwttest.jwt;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixedClaimsTokenEncoderTest {
+    private static final SecretKeySpec SECRET_KEY = new SecretKeySpec(
+            "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes(StandardCharsets.UTF_8),
+            FixedClaimsTokenEncoder.ALGORITHM);
+
+    @DisplayName("jjwt 빌더로 만든 토큰과 바이트 단위로 같다.")
+    @ParameterizedTest
+    @ValueSource(strings = {"산드로", "a", "ab", "abc", "quote\"back\\slash/", "emoji😀", "ü é"})
+    void compatible(String username) {
+        // Given
+        FixedClaimsTokenEncoder encoder = new FixedClaimsTokenEncoder(SECRET_KEY);
+        long now = 1_700_000_000_123L;
+        long expiration = now + 36_000_000L;
+
+        // When
+        String token = encoder.encode("access", username, "ROLE_ADMIN", now / 1000, expiration / 1000);
+
+        // Then
+        String expected = Jwts.builder()
+                .claim("category", "access")
+                .claim("username", username)
+                .claim("role", "ROLE_ADMIN")
+                .issuedAt(new Date(now))
+                .expiration(new Date(expiration))
+                .signWith(SECRET_KEY, Jwts.SIG.HS256)
+                .compact();
+        assertThat(token).isEqualTo(expected);
+    }
+
+    @DisplayName("fid 클레임이 있는 refresh token도 jjwt 빌더로 만든 토큰과 같다.")
+    @Test
+    void compatibleWithFamilyId() {
+        // Given
+        FixedClaimsTokenEncoder encoder = new FixedClaimsTokenEncoder(SECRET_KEY);
+        long now = 1_700_000_000_123L;
+        long expiration = now + 864_000_000L;
+        String familyId = "3f1c2a9e-8d4b-4c7a-9e2f-1b6d5a4c3e2f";
+
+        // When
+        String token = encoder.encode("refresh", "산드로", "ROLE_ADMIN", familyId, now / 1000, expiration / 1000);
+
+        // Then
+        String expected = Jwts.builder()
+                .claim("category", "refresh")
+                .claim("username", "산드로")
+                .claim("role", "ROLE_ADMIN")
+                .claim("fid", familyId)
+                .issuedAt(new Date(now))
+                .expiration(new Date(expiration))
+                .signWith(SECRET_KEY, Jwts.SIG.HS256)
+                .compact();
+        assertThat(token).isEqualTo(expected);
+    }
+
+    @DisplayName("직렬화 결과를 장담할 수 없는 입력은 만들지 않는다.")
+    @ParameterizedTest
+    @ValueSource(strings = {"new\nline", "tab\t", "\uD800", ""})
+    void unsupported(String username) {
+        // Given
+        FixedClaimsTokenEncoder encoder = new FixedClaimsTokenEncoder(SECRET_KEY);
+
+        // When
+        String token = encoder.encode("access", username, "ROLE_ADMIN", 1_700_000_000L, 1_700_036_000L);
+
+        // Then
+        assertThat(token).isNull();
+    }
+}
@@ -0,0 +1,84 @@
+package com.kb.jwttest.jwt;
+
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixedClaimsTokenVerifierTest {
+    private static final SecretKeySpec SECRET_KEY = new SecretKeySpec(
+            "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes(StandardCharsets.UTF_8),
+            FixedClaimsTokenEncoder.ALGORITHM);
+    private static final long NOW = 1_700_000_000_000L;
+
+    @DisplayName("jjwt로 발급한 토큰의 서명을 확인하고 클레임을 꺼낸다.")
+    @Test
+    void verify() {
+        // Given
+        FixedClaimsTokenVerifier verifier = new FixedClaimsTokenVerifier(SECRET_KEY);
+        String token = token(SECRET_KEY);
+
+        // When
+        VerifiedToken verified = verifier.verify(token);
+
+        // Then
+        assertThat(verified).isEqualTo(new VerifiedToken("access", "산드로", "ROLE_ADMIN", NOW, NOW + 60_000));
+    }
+
+    @DisplayName("서명이 맞지 않거나 변조된 토큰은 확인하지 않는다.")
+    @Test
+    void invalidSignature() {
+        // Given
+        FixedClaimsTokenVerifier verifier = new FixedClaimsTokenVerifier(SECRET_KEY);
+        String token = token(SECRET_KEY);
+        String otherKeyToken = token(new SecretKeySpec("b".repeat(64).getBytes(StandardCharsets.UTF_8), FixedClaimsTokenEncoder.ALGORITHM));
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + parts[1].substring(0, parts[1].length() - 2) + "AA." + parts[2];
+
+        // When & Then
+        assertThat(verifier.verify(otherKeyToken)).isNull();
+        assertThat(verifier.verify(tampered)).isNull();
+        assertThat(verifier.verify(token.substring(0, token.length() - 1))).isNull();
+    }
+
+    @DisplayName("헤더나 클레임 구성이 다른 토큰은 jjwt에 맡긴다.")
+    @Test
+    void unsupported() {
+        // Given
+        FixedClaimsTokenVerifier verifier = new FixedClaimsTokenVerifier(SECRET_KEY);
+        String typedHeader = Jwts.builder()
+                .header().type("JWT").and()
+                .claim("category", "access")
+                .signWith(SECRET_KEY, Jwts.SIG.HS256)
+                .compact();
+        String extraClaim = Jwts.builder()
+                .claim("category", "access")
+                .claim("username", "산드로")
+                .claim("role", "ROLE_ADMIN")
+                .issuedAt(new Date(NOW))
+                .expiration(new Date(NOW + 60_000))
+                .notBefore(new Date(NOW))
+                .signWith(SECRET_KEY, Jwts.SIG.HS256)
+                .compact();
+
+        // When & Then
+        assertThat(verifier.verify(typedHeader)).isNull();
+        assertThat(verifier.verify(extraClaim)).isNull();
+    }
+
+    private static String token(SecretKeySpec secretKey) {
+        return Jwts.builder()
+                .claim("category", "access")
+                .claim("username", "산드로")
+                .claim("role", "ROLE_ADMIN")
+                .issuedAt(new Date(NOW))
+                .expiration(new Date(NOW + 60_000))
+                .signWith(secretKey, Jwts.SIG.HS256)
+                .compact();
+    }
+}
@@ -0,0 +1,70 @@
+package com.kb.jwttest.jwt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalAccessTokenRevocationsTest {
+    private static final long ACCESS_EXPIRED_MS = 60_000;
+    private static final String USERNAME = "산드로";
+
+    @DisplayName("폐기한 초보다 먼저 발급된 access token만 거절하고, 다른 사용자의 토큰은 그대로 둔다.")
+    @Test
+    void revoke() {
+        // Given
+        LocalAccessTokenRevocations revocations = new LocalAccessTokenRevocations(ACCESS_EXPIRED_MS, new SimpleMeterRegistry());
+        long now = LocalAccessTokenRevocations.epochOf(System.currentTimeMillis());
+
+        // When
+        revocations.revoke(USERNAME);
+
+        // Then
+        assertThat(revocations.isRevoked(token(USERNAME, now - 1_000))).isTrue();
+        assertThat(revocations.isRevoked(token(USERNAME, now + 1_000))).isFalse();
+        assertThat(revocations.isRevoked(token("other", now - 1_000))).isFalse();
+    }
+
+    @DisplayName("revoked-before 시각은 늦어지는 방향으로만 바뀌고, access token 수명이 지난 시각은 지운다.")
+    @Test
+    void applyAndPrune() {
+        // Given
+        LocalAccessTokenRevocations revocations = new LocalAccessTokenRevocations(ACCESS_EXPIRED_MS, new SimpleMeterRegistry());
+        long now = System.currentTimeMillis();
+        revocations.apply(USERNAME, now - 10_000);
+
+        // When
+        boolean earlier = revocations.apply(USERNAME, now - 20_000);
+        boolean expired = revocations.apply("other", now - ACCESS_EXPIRED_MS - 1_000);
+
+        // Then
+        assertThat(earlier).isFalse();
+        assertThat(expired).isFalse();
+        assertThat(revocations.isRevoked(token(USERNAME, now - 15_000))).isTrue();
+        assertThat(revocations.size()).isEqualTo(1);
+    }
+
+    @DisplayName("테이블이 커지고 오래된 항목을 지운 뒤에도 남은 사용자의 시각을 찾는다.")
+    @Test
+    void growAndRemove() {
+        // Given
+        RevokedBeforeMap map = new RevokedBeforeMap();
+        for (int i = 0; i < 100_000; i++)
+            map.raise("user-" + i, i % 2 == 0 ? 1_000 : 2_000);
+
+        // When
+        int removed = map.removeOlderThan(2_000);
+
+        // Then
+        assertThat(removed).isEqualTo(50_000);
+        assertThat(map.size()).isEqualTo(50_000);
+        assertThat(map.get("user-1")).isEqualTo(2_000);
+        assertThat(map.get("user-99999")).isEqualTo(2_000);
+        assertThat(map.get("user-0")).isZero();
+    }
+
+    private static VerifiedToken token(String username, long issuedAt) {
+        return new VerifiedToken("access", username, "ROLE_USER", null, issuedAt, issuedAt + ACCESS_EXPIRED_MS);
+    }
+}
@@ -0,0 +1,174 @@
+package com.kb.jwttest.jwt;
+
+import com.kb.jwttest.dto.Tokens;
+import com.kb.jwttest.memory.InMemoryRefreshTokenStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReissueCoalescerTest {
+    private static final String REFRESH_TOKEN = "header.payload.signature";
+    private static final String USERNAME = "산드로";
+
+    private final InMemoryRefreshTokenStore refreshTokenStore = new InMemoryRefreshTokenStore(1_000, 0, Duration.ofSeconds(1), new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        refreshTokenStore.close();
+    }
+
+    @DisplayName("같은 refresh token으로 동시에 들어온 재발급 N건은 한 번만 교체하고 같은 토큰 쌍을 받는다.")
+    @Test
+    void coalesce() throws Exception {
+        // Given
+        int callers = 16;
+        ReissueCoalescer coalescer = coalescer(new SimpleMeterRegistry());
+        AtomicInteger rotations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ready = new CountDownLatch(callers);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+        // When
+        List<Future<Tokens>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                ready.countDown();
+                return coalescer.reissue(REFRESH_TOKEN, token -> {
+                    rotations.incrementAndGet();
+                    await(release);
+                    return issue("access-" + rotations.get(), "refresh-" + rotations.get());
+                });
+            }));
+        }
+        ready.await();
+        Thread.sleep(100);
+        release.countDown();
+
+        // Then
+        List<Tokens> tokens = new ArrayList<>();
+        for (Future<Tokens> result : results)
+            tokens.add(result.get());
+        executor.shutdown();
+
+        assertThat(rotations).hasValue(1);
+        assertThat(tokens).hasSize(callers).containsOnly(new Tokens("access-1", "refresh-1"));
+    }
+
+    @DisplayName("실패한 교체는 결과를 남기지 않으므로 다음 요청이 다시 교체한다.")
+    @Test
+    void failureIsNotCached() {
+        // Given
+        ReissueCoalescer coalescer = coalescer(new SimpleMeterRegistry());
+        AtomicInteger rotations = new AtomicInteger();
+
+        // When
+        assertThatThrownBy(() -> coalescer.reissue(REFRESH_TOKEN, token -> {
+            rotations.incrementAndGet();
+            throw new RuntimeException("refresh token is not found");
+        })).hasMessage("refresh token is not found");
+        Tokens tokens = coalescer.reissue(REFRESH_TOKEN, token -> {
+            rotations.incrementAndGet();
+            return issue("access", "refresh");
+        });
+
+        // Then
+        assertThat(rotations).hasValue(2);
+        assertThat(tokens).isEqualTo(new Tokens("access", "refresh"));
+    }
+
+    @DisplayName("교체가 Error로 끝나도 진행 중에 합류한 요청은 멈추지 않고 같은 Error를 받는다.")
+    @Test
+    void errorReachesWaiters() throws Exception {
+        // Given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReissueCoalescer coalescer = coalescer(meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<Tokens> leader = executor.submit(() -> coalescer.reissue(REFRESH_TOKEN, token -> {
+            started.countDown();
+            await(release);
+            throw new AssertionError("rotation failed");
+        }));
+        started.await();
+        Future<Tokens> waiter = executor.submit(() -> coalescer.reissue(REFRESH_TOKEN, token -> new Tokens("access", "refresh")));
+        while (meterRegistry.get("auth.reissue.coalesced").tag("source", "in_flight").counter().count() < 1)
+            Thread.sleep(10);
+
+        // When
+        release.countDown();
+
+        // Then
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(AssertionError.class);
+        assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(AssertionError.class);
+        executor.shutdownNow();
+    }
+
+    @DisplayName("남겨 둔 결과의 refresh token이 로그아웃으로 지워졌으면 결과를 재사용하지 않고 다시 교체한다.")
+    @Test
+    void recentResultAfterLogout() {
+        // Given
+        ReissueCoalescer coalescer = coalescer(new SimpleMeterRegistry());
+        AtomicInteger rotations = new AtomicInteger();
+        Tokens first = coalescer.reissue(REFRESH_TOKEN, token -> {
+            rotations.incrementAndGet();
+            return issue("access", "refresh");
+        });
+        refreshTokenStore.delete(first.refreshToken());
+
+        // When
+        assertThatThrownBy(() -> coalescer.reissue(REFRESH_TOKEN, token -> {
+            rotations.incrementAndGet();
+            throw new RuntimeException("refresh token is not found");
+        })).hasMessage("refresh token is not found");
+
+        // Then
+        assertThat(rotations).hasValue(2);
+    }
+
+    @DisplayName("결과를 재사용하는 시간이 grace window보다 길면 만들 수 없다.")
+    @Test
+    void resultTtlLongerThanGrace() {
+        assertThatIllegalArgumentException()
+                .isThrownBy(() -> new ReissueCoalescer(refreshTokenStore, 3_000, 2_000, 100, new SimpleMeterRegistry()));
+    }
+
+    private ReissueCoalescer coalescer(SimpleMeterRegistry meterRegistry) {
+        return new ReissueCoalescer(refreshTokenStore, 60_000, 60_000, 100, meterRegistry);
+    }
+
+    private Tokens issue(String accessToken, String refreshToken) {
+        refreshTokenStore.save(refreshToken, "family", USERNAME, System.currentTimeMillis() + 60_000);
+        return new Tokens(accessToken, refreshToken);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
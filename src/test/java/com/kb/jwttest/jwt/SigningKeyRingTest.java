@@ -0,0 +1,77 @@
+package com.kb.jwttest.jwt;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SigningKeyRingTest {
+    private static final String SECRET = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+
+    @DisplayName("키를 교체해도 이전 키로 발급된 토큰은 kid로 검증 키를 찾아 검증한다.")
+    @Test
+    void rotation() {
+        // Given
+        KeyPair oldKey = SigningKeyRing.generateKeyPair("ES256");
+        KeyPair newKey = SigningKeyRing.generateKeyPair("ES256");
+        JwtUtils before = jwtUtils(new SigningKeyRing("ES256", "old", oldKey.getPrivate(), Map.of("old", oldKey.getPublic()), null));
+        JwtUtils after = jwtUtils(new SigningKeyRing("ES256", "new", newKey.getPrivate(),
+                Map.of("old", oldKey.getPublic(), "new", newKey.getPublic()), null));
+
+        // When
+        String oldToken = before.createAccessToken("산드로", "ROLE_ADMIN");
+        String newToken = after.createAccessToken("산드로", "ROLE_ADMIN");
+
+        // Then
+        assertThat(after.verify(oldToken).username()).isEqualTo("산드로");
+        assertThat(after.verify(newToken).username()).isEqualTo("산드로");
+        assertThatThrownBy(() -> before.verify(newToken)).isInstanceOf(JwtException.class);
+    }
+
+    @DisplayName("EdDSA 키로 서명한 토큰을 검증하고, 공개키만 JWK로 내보낸다.")
+    @Test
+    void eddsa() {
+        // Given
+        KeyPair keyPair = SigningKeyRing.generateKeyPair("EdDSA");
+        SigningKeyRing keyRing = new SigningKeyRing("EdDSA", "ed", keyPair.getPrivate(), Map.of("ed", keyPair.getPublic()), null);
+        JwtUtils jwtUtils = jwtUtils(keyRing);
+
+        // When
+        VerifiedToken verified = jwtUtils.verify(jwtUtils.createRefreshToken("산드로", "ROLE_ADMIN"));
+
+        // Then
+        assertThat(verified.isRefreshToken()).isTrue();
+        assertThat(keyRing.jwks()).singleElement()
+                .satisfies(jwk -> assertThat(jwk)
+                        .containsEntry("kty", "OKP")
+                        .containsEntry("crv", "Ed25519")
+                        .containsEntry("kid", "ed")
+                        .doesNotContainKey("d"));
+    }
+
+    @DisplayName("비대칭 모드에서 kid 없는 HS256 토큰은 전환 옵션이 켜져 있을 때만 받아 준다.")
+    @Test
+    void legacyHs256() {
+        // Given
+        String legacyToken = new JwtUtils(SECRET, 60_000, 60_000, 0).createAccessToken("산드로", "ROLE_ADMIN");
+        KeyPair keyPair = SigningKeyRing.generateKeyPair("ES256");
+        SecretKeySpec secretKey = new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        JwtUtils lenient = jwtUtils(new SigningKeyRing("ES256", "k", keyPair.getPrivate(), Map.of("k", keyPair.getPublic()), secretKey));
+        JwtUtils strict = jwtUtils(new SigningKeyRing("ES256", "k", keyPair.getPrivate(), Map.of("k", keyPair.getPublic()), null));
+
+        // When & Then
+        assertThat(lenient.verify(legacyToken).username()).isEqualTo("산드로");
+        assertThatThrownBy(() -> strict.verify(legacyToken)).isInstanceOf(JwtException.class);
+    }
+
+    private static JwtUtils jwtUtils(SigningKeyRing keyRing) {
+        return new JwtUtils(SECRET, 60_000, 60_000, 0, keyRing);
+    }
+}
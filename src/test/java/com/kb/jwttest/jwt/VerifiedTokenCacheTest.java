@@ -0,0 +1,72 @@
+package com.kb.jwttest.jwt;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+    private static final String TOKEN = "header.payload.signature";
+
+    @DisplayName("같은 토큰이 다시 들어오면 캐시에서 응답한다.")
+    @Test
+    void hit() {
+        // Given
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        VerifiedToken verifiedToken = verifiedToken(System.currentTimeMillis() + 60_000);
+        cache.put(TOKEN, verifiedToken);
+
+        // When
+        VerifiedToken found = cache.get(TOKEN);
+
+        // Then
+        assertThat(found).isEqualTo(verifiedToken);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+    }
+
+    @DisplayName("서명이 같아도 헤더/페이로드가 변조된 토큰은 캐시에서 응답하지 않는다.")
+    @Test
+    void tampered() {
+        // Given
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.put(TOKEN, verifiedToken(System.currentTimeMillis() + 60_000));
+
+        // When
+        VerifiedToken found = cache.get("header.tampered.signature");
+
+        // Then
+        assertThat(found).isNull();
+    }
+
+    @DisplayName("만료된 토큰은 캐싱하지 않는다.")
+    @Test
+    void expired() {
+        // Given
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+
+        // When
+        cache.put(TOKEN, verifiedToken(System.currentTimeMillis() - 1));
+
+        // Then
+        assertThat(cache.get(TOKEN)).isNull();
+    }
+
+    @DisplayName("최대 크기를 넘으면 엔트리를 제거한다.")
+    @Test
+    void bounded() {
+        // Given
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+
+        // When
+        for (int i = 0; i < 10_000; i++)
+            cache.put("header.payload.signature" + i, verifiedToken(System.currentTimeMillis() + 60_000));
+
+        // Then
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+        assertThat(cache.stats().evictionCount()).isPositive();
+    }
+
+    private static VerifiedToken verifiedToken(long expiration) {
+        return new VerifiedToken("access", "산드로", "ROLE_ADMIN", System.currentTimeMillis(), expiration);
+    }
+}
@@ -0,0 +1,145 @@
+package com.kb.jwttest.memory;
+
+import com.kb.jwttest.redis.RefreshTokenIds;
+import com.kb.jwttest.redis.RotationResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryRefreshTokenStoreTest {
+    private static final String FAMILY_ID = "family";
+    private static final String USERNAME = "산드로";
+    /**
+     * stripe마다 세션 하나만 담기는 maxSessions
+     */
+    private static final long STRIPE_COUNT = 64;
+
+    @DisplayName("grace window가 지난 뒤 교체된 토큰이 다시 들어오면 family의 살아 있는 토큰을 모두 폐기한다.")
+    @Test
+    void reuseDetected() {
+        try (InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore(1_000, 0, Duration.ofSeconds(1), new SimpleMeterRegistry())) {
+            // Given
+            long expiration = System.currentTimeMillis() + 60_000;
+            store.save("token-1", FAMILY_ID, USERNAME, expiration);
+            store.rotate("token-1", "token-2", FAMILY_ID, USERNAME, expiration);
+            sleep(10);
+
+            // When
+            RotationResult result = store.rotate("token-1", "token-3", FAMILY_ID, USERNAME, expiration);
+
+            // Then
+            assertThat(result.status()).isEqualTo(RotationResult.Status.REUSE_DETECTED);
+            assertThat(result.revokedTokenIds()).containsExactly(RefreshTokenIds.of("token-2"));
+            assertThat(store.exists("token-2")).isFalse();
+            assertThat(store.exists("token-3")).isFalse();
+            assertThat(store.findSessions(USERNAME)).isEmpty();
+        }
+    }
+
+    @DisplayName("교체한 뒤 로그아웃한 family는 grace window 안에 이전 토큰이 다시 들어와도 새 토큰을 발급하지 않는다.")
+    @Test
+    void replayAfterLogout() {
+        try (InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore(1_000, 60_000, Duration.ofSeconds(1), new SimpleMeterRegistry())) {
+            // Given
+            long expiration = System.currentTimeMillis() + 60_000;
+            store.save("token-1", FAMILY_ID, USERNAME, expiration);
+            store.rotate("token-1", "token-2", FAMILY_ID, USERNAME, expiration);
+            store.revokeAll(USERNAME);
+
+            // When
+            RotationResult result = store.rotate("token-1", "token-3", FAMILY_ID, USERNAME, expiration);
+
+            // Then
+            assertThat(result).isEqualTo(RotationResult.NOT_FOUND);
+            assertThat(store.exists("token-3")).isFalse();
+            assertThat(store.findSessions(USERNAME)).isEmpty();
+        }
+    }
+
+    @DisplayName("만료 시각이 지난 세션은 tick에 메모리에서 빠진다.")
+    @Test
+    void expire() {
+        try (InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore(1_000, 2_000, Duration.ofMillis(10), new SimpleMeterRegistry())) {
+            // Given
+            store.save("token-1", FAMILY_ID, USERNAME, System.currentTimeMillis() + 50);
+            assertThat(store.exists("token-1")).isTrue();
+
+            // When
+            sleep(200);
+
+            // Then
+            assertThat(store.exists("token-1")).isFalse();
+            assertThat(store.size()).isZero();
+            assertThat(store.findSessions(USERNAME)).isEmpty();
+        }
+    }
+
+    @DisplayName("교체, 로그아웃, 용량 초과로 빠진 세션은 만료 예약도 함께 취소한다.")
+    @Test
+    void cancelTimeouts() {
+        try (InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore(STRIPE_COUNT, 0, Duration.ofMillis(10), new SimpleMeterRegistry())) {
+            // Given
+            long expiration = System.currentTimeMillis() + 60_000;
+            store.save("token-0", FAMILY_ID, USERNAME, expiration);
+            for (int i = 0; i < 100; i++)
+                store.rotate("token-" + i, "token-" + (i + 1), FAMILY_ID, USERNAME, expiration);
+            for (int i = 0; i < 1_000; i++)
+                store.save("other-" + i, "other-family-" + i, USERNAME, expiration);
+
+            // When
+            store.revokeAll(USERNAME);
+            sleep(200);
+
+            // Then
+            assertThat(store.size()).isZero();
+            assertThat(store.timeouts()).isEqualTo(1); // 교체 기록이 남은 family
+        }
+    }
+
+    @DisplayName("저널을 켜면 스냅샷과 그 뒤의 저널로 재시작 전 상태를 복구한다.")
+    @Test
+    void recover(@TempDir Path directory) throws IOException {
+        // Given
+        long expiration = System.currentTimeMillis() + 60_000;
+        try (InMemoryRefreshTokenStore store = persistentStore(directory)) {
+            store.save("token-1", FAMILY_ID, USERNAME, expiration);
+            store.save("logout", "other-family", USERNAME, expiration);
+            store.snapshot();
+            store.rotate("token-1", "token-2", FAMILY_ID, USERNAME, expiration);
+            store.delete("logout");
+        }
+
+        // When
+        try (InMemoryRefreshTokenStore store = persistentStore(directory)) {
+            // Then
+            assertThat(store.exists("token-1")).isFalse();
+            assertThat(store.exists("token-2")).isTrue();
+            assertThat(store.exists("logout")).isFalse();
+            assertThat(store.findSessions(USERNAME)).hasSize(1);
+            assertThat(store.rotate("token-1", "token-3", FAMILY_ID, USERNAME, expiration).status())
+                    .isEqualTo(RotationResult.Status.REUSE_DETECTED);
+        }
+    }
+
+    private static InMemoryRefreshTokenStore persistentStore(Path directory) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RefreshTokenJournal journal = new RefreshTokenJournal(directory, 1 << 20, true, Long.MAX_VALUE, Duration.ofHours(1), meterRegistry);
+        return new InMemoryRefreshTokenStore(1_000, 0, Duration.ofSeconds(1), journal, meterRegistry);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.kb.jwttest.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshTokenJournalTest {
+    private static final String FAMILY_ID = "family";
+    private static final String USERNAME = "산드로";
+    private static final long EXPIRATION = Long.MAX_VALUE;
+
+    @DisplayName("마지막 레코드가 깨져 있으면 그 앞의 레코드까지만 복구하고, 이후 쓰기는 새 세그먼트에 이어진다.")
+    @Test
+    void tornTail(@TempDir Path directory) throws IOException {
+        // Given
+        try (RefreshTokenJournal journal = journal(directory, 1 << 16)) {
+            journal.open(new Recorder(), EMPTY);
+            journal.append(JournalCodec.issue("token-1", FAMILY_ID, USERNAME, EXPIRATION));
+            journal.append(JournalCodec.issue("token-2", FAMILY_ID, USERNAME, EXPIRATION));
+            journal.append(JournalCodec.issue("token-3", FAMILY_ID, USERNAME, EXPIRATION));
+            journal.sync();
+        }
+        int lastRecord = 2 * JournalCodec.issue("token-1", FAMILY_ID, USERNAME, EXPIRATION).remaining();
+        corrupt(directory.resolve("journal-0.log"), lastRecord + JournalCodec.HEADER_BYTES + 1);
+
+        // When
+        Recorder recorder = new Recorder();
+        try (RefreshTokenJournal journal = journal(directory, 1 << 16)) {
+            journal.open(recorder, EMPTY);
+            journal.append(JournalCodec.issue("token-4", FAMILY_ID, USERNAME, EXPIRATION));
+            journal.sync();
+        }
+
+        // Then
+        assertThat(recorder.issued).containsExactly("token-1", "token-2");
+
+        Recorder reopened = new Recorder();
+        try (RefreshTokenJournal journal = journal(directory, 1 << 16)) {
+            journal.open(reopened, EMPTY);
+        }
+        assertThat(reopened.issued).containsExactly("token-1", "token-2", "token-4");
+    }
+
+    @DisplayName("세그먼트가 차면 다음 세그먼트로 넘어가고, 복구할 때 세그먼트를 순서대로 모두 읽는다.")
+    @Test
+    void roll(@TempDir Path directory) throws IOException {
+        // Given
+        List<String> tokens = IntStream.range(0, 100).mapToObj(i -> "token-" + i).toList();
+        try (RefreshTokenJournal journal = journal(directory, 512)) {
+            journal.open(new Recorder(), EMPTY);
+            for (String token : tokens)
+                journal.append(JournalCodec.issue(token, FAMILY_ID, USERNAME, EXPIRATION));
+            journal.sync();
+        }
+
+        // When
+        Recorder recorder = new Recorder();
+        try (RefreshTokenJournal journal = journal(directory, 512)) {
+            journal.open(recorder, EMPTY);
+        }
+
+        // Then
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.filter(file -> file.getFileName().toString().endsWith(".log")).count()).isGreaterThan(2);
+        }
+        assertThat(recorder.issued).containsExactlyElementsOf(tokens);
+    }
+
+    @DisplayName("다음 세그먼트를 열지 못해도 append는 예외를 던지지 않고, 스냅샷이 상태를 담을 때까지 sync가 실패를 알린다.")
+    @Test
+    void rollFailure(@TempDir Path directory) throws IOException {
+        // Given
+        Files.createDirectory(directory.resolve("journal-1.log"));
+        try (RefreshTokenJournal journal = journal(directory, 512)) {
+            journal.open(new Recorder(), EMPTY);
+
+            // When
+            assertThatCode(() -> {
+                for (int i = 0; i < 50; i++)
+                    journal.append(JournalCodec.issue("token-" + i, FAMILY_ID, USERNAME, EXPIRATION));
+            }).doesNotThrowAnyException();
+
+            // Then
+            assertThatThrownBy(journal::sync).isInstanceOf(UncheckedIOException.class);
+
+            Files.delete(directory.resolve("journal-1.log"));
+            journal.snapshot(EMPTY);
+            journal.append(JournalCodec.issue("token-50", FAMILY_ID, USERNAME, EXPIRATION));
+            assertThatCode(journal::sync).doesNotThrowAnyException();
+        }
+    }
+
+    @DisplayName("스냅샷에 이미 담긴 변경을 저널에서 다시 적용해도 같은 상태가 된다.")
+    @Test
+    void fuzzySnapshotReplay(@TempDir Path directory) throws IOException {
+        // Given
+        long expiration = System.currentTimeMillis() + 60_000;
+        try (InMemoryRefreshTokenStore store = persistentStore(directory)) {
+            store.save("token-1", FAMILY_ID, USERNAME, expiration);
+            store.rotate("token-1", "token-2", FAMILY_ID, USERNAME, expiration);
+            store.save("logout", "other-family", USERNAME, expiration);
+            store.delete("logout");
+        }
+        // 세그먼트 0의 레코드를 그 변경을 이미 담은 스냅샷 뒤의 세그먼트로 옮겨, 복구할 때 한 번 더 적용되게 한다.
+        Files.copy(directory.resolve("journal-0.log"), directory.resolve("journal-0.bak"));
+        try (InMemoryRefreshTokenStore store = persistentStore(directory)) {
+            store.snapshot();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(".log")).toList())
+                Files.delete(file);
+        }
+        Files.move(directory.resolve("journal-0.bak"), directory.resolve("journal-" + snapshotNumber(directory) + ".log"));
+
+        // When
+        try (InMemoryRefreshTokenStore store = persistentStore(directory)) {
+            // Then
+            assertThat(store.exists("token-1")).isFalse();
+            assertThat(store.exists("token-2")).isTrue();
+            assertThat(store.exists("logout")).isFalse();
+            assertThat(store.size()).isEqualTo(1);
+            assertThat(store.findSessions(USERNAME)).hasSize(1);
+        }
+    }
+
+    @DisplayName("쓰기가 이어지는 동안 스냅샷을 찍어도 복구한 상태는 마지막 쓰기까지 반영한다.")
+    @Test
+    void snapshotDuringWrites(@TempDir Path directory) throws Exception {
+        // Given
+        long expiration = System.currentTimeMillis() + 60_000;
+        Set<String> live = ConcurrentHashMap.newKeySet();
+        Set<String> gone = ConcurrentHashMap.newKeySet();
+        int writers = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        try (InMemoryRefreshTokenStore store = persistentStore(directory)) {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                int id = writer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 500; i++) {
+                        String family = "family-" + id + "-" + i;
+                        String first = family + "-a";
+                        String second = family + "-b";
+                        store.save(first, family, USERNAME + id, expiration);
+                        store.rotate(first, second, family, USERNAME + id, expiration);
+                        gone.add(first);
+                        if (i % 3 == 0) {
+                            store.delete(second);
+                            gone.add(second);
+                        } else {
+                            live.add(second);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            Future<?> snapshots = executor.submit(() -> {
+                start.await();
+                while (writing.get())
+                    store.snapshot();
+                return null;
+            });
+
+            // When
+            start.countDown();
+            for (Future<?> future : futures)
+                future.get(1, TimeUnit.MINUTES);
+            writing.set(false);
+            snapshots.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        try (InMemoryRefreshTokenStore store = persistentStore(directory)) {
+            assertThat(store.size()).isEqualTo(live.size());
+            assertThat(live).allMatch(store::exists);
+            assertThat(gone).noneMatch(store::exists);
+        }
+    }
+
+    private static RefreshTokenJournal journal(Path directory, int segmentBytes) {
+        return new RefreshTokenJournal(directory, segmentBytes, true, Long.MAX_VALUE, Duration.ofHours(1), new SimpleMeterRegistry());
+    }
+
+    private static InMemoryRefreshTokenStore persistentStore(Path directory) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RefreshTokenJournal journal = new RefreshTokenJournal(directory, 1 << 20, true, Long.MAX_VALUE, Duration.ofHours(1), meterRegistry);
+        return new InMemoryRefreshTokenStore(10_000, 0, Duration.ofSeconds(1), journal, meterRegistry);
+    }
+
+    private static long snapshotNumber(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("snapshot-"))
+                    .mapToLong(name -> Long.parseLong(name.substring("snapshot-".length(), name.length() - ".bin".length())))
+                    .max()
+                    .orElseThrow();
+        }
+    }
+
+    private static void corrupt(Path segment, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, offset);
+            one.put(0, (byte) ~one.get(0));
+            channel.write(one.rewind(), offset);
+        }
+    }
+
+    private static final RefreshTokenJournal.SnapshotSource EMPTY = new RefreshTokenJournal.SnapshotSource() {
+        @Override
+        public int sections() {
+            return 0;
+        }
+
+        @Override
+        public void dump(int section, Consumer<ByteBuffer> records) {
+        }
+    };
+
+    private static class Recorder implements JournalCodec.Events {
+        private final List<String> issued = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void issue(String tokenId, String familyId, String username, long expiration) {
+            issued.add(tokenId);
+        }
+
+        @Override
+        public void retire(String tokenId, String familyId, long rotatedAt) {
+        }
+
+        @Override
+        public void revoke(String tokenId) {
+        }
+
+        @Override
+        public void revokeFamily(String familyId) {
+        }
+
+        @Override
+        public void rotated(String familyId, long familyExpiration, String tokenId, long rotatedAt) {
+        }
+    }
+}
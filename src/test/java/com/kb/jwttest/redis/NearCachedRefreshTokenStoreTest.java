@@ -0,0 +1,102 @@
+package com.kb.jwttest.redis;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearCachedRefreshTokenStoreTest {
+    private static final String REFRESH_TOKEN = "header.payload.signature";
+    private static final String FAMILY_ID = "family";
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (RedisMessageListenerContainer container : containers)
+            container.destroy();
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @DisplayName("한 번 확인한 토큰은 Redis에 묻지 않고 near-cache에서 응답한다.")
+    @Test
+    void nearCacheHit() {
+        // Given
+        NearCachedRefreshTokenStore node = node();
+        node.save(REFRESH_TOKEN, FAMILY_ID, "산드로", System.currentTimeMillis() + 60_000);
+
+        // When
+        redisTemplate.delete("rt:" + RefreshTokenIds.of(REFRESH_TOKEN));
+
+        // Then
+        assertThat(node.exists(REFRESH_TOKEN)).isTrue();
+    }
+
+    @DisplayName("다른 노드에서 토큰을 폐기하면 pub/sub 메시지로 near-cache가 무효화된다.")
+    @Test
+    void invalidation() throws InterruptedException {
+        // Given
+        NearCachedRefreshTokenStore nodeA = node();
+        NearCachedRefreshTokenStore nodeB = node();
+        nodeA.save(REFRESH_TOKEN, FAMILY_ID, "산드로", System.currentTimeMillis() + 60_000);
+        assertThat(nodeB.exists(REFRESH_TOKEN)).isTrue();
+
+        // When
+        nodeA.delete(REFRESH_TOKEN);
+
+        // Then
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (nodeB.exists(REFRESH_TOKEN) && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        assertThat(nodeB.exists(REFRESH_TOKEN)).isFalse();
+    }
+
+    private NearCachedRefreshTokenStore node() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RefreshTokenNearCache nearCache = new RefreshTokenNearCache(1_000, Duration.ofMinutes(1), 1_000, 0.01, meterRegistry);
+        NearCachedRefreshTokenStore store = new NearCachedRefreshTokenStore(new RedisRefreshTokenStore(redisTemplate, 2_000, meterRegistry), nearCache, redisTemplate, meterRegistry);
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(store, new ChannelTopic(NearCachedRefreshTokenStore.INVALIDATION_CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+        containers.add(container);
+
+        return store;
+    }
+}
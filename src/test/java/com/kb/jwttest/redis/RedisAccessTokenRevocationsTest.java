@@ -0,0 +1,163 @@
+package com.kb.jwttest.redis;
+
+import com.kb.jwttest.jwt.JwtFilter;
+import com.kb.jwttest.jwt.JwtUtils;
+import com.kb.jwttest.jwt.LocalAccessTokenRevocations;
+import com.kb.jwttest.jwt.VerifiedToken;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisAccessTokenRevocationsTest {
+    private static final String REVOKED_BEFORE_KEY = "access_token:revoked_before";
+    private static final String SECRET = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+    private static final long ACCESS_EXPIRED_MS = 60_000;
+    private static final String USERNAME = "산드로";
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private RedisMessageListenerContainer container;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (container != null)
+            container.destroy();
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @DisplayName("스크립트는 revoked-before 시각을 올리기만 하고, 이미 더 늦은 시각은 그대로 둔다.")
+    @Test
+    void raiseOnly() {
+        // Given
+        RedisAccessTokenRevocations node = node();
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().add(REVOKED_BEFORE_KEY, USERNAME, now + 30_000);
+        redisTemplate.opsForZSet().add(REVOKED_BEFORE_KEY, "other", now - 30_000);
+
+        // When
+        node.revoke(List.of(USERNAME, "other"));
+
+        // Then
+        assertThat(redisTemplate.opsForZSet().score(REVOKED_BEFORE_KEY, USERNAME)).isEqualTo((double) (now + 30_000));
+        assertThat(redisTemplate.opsForZSet().score(REVOKED_BEFORE_KEY, "other"))
+                .isBetween((double) LocalAccessTokenRevocations.epochOf(now), (double) System.currentTimeMillis());
+    }
+
+    @DisplayName("한 노드에서 폐기하면 pub/sub으로 다른 노드에도 바로 반영된다.")
+    @Test
+    void broadcast() throws InterruptedException {
+        // Given
+        RedisAccessTokenRevocations revoking = node();
+        RedisAccessTokenRevocations listening = node();
+        listen(listening);
+        VerifiedToken token = issuedBefore(System.currentTimeMillis());
+
+        // When
+        revoking.revoke(USERNAME);
+
+        // Then
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!listening.isRevoked(token) && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertThat(listening.isRevoked(token)).isTrue();
+    }
+
+    @DisplayName("메시지를 받지 못한 새 노드는 sync로 Redis의 revoked-before 시각을 채운다.")
+    @Test
+    void syncFillsFreshNode() {
+        // Given
+        node().revoke(USERNAME);
+        RedisAccessTokenRevocations fresh = node();
+        VerifiedToken token = issuedBefore(System.currentTimeMillis());
+        assertThat(fresh.isRevoked(token)).isFalse();
+
+        // When
+        fresh.sync();
+
+        // Then
+        assertThat(fresh.isRevoked(token)).isTrue();
+    }
+
+    @DisplayName("다른 노드에서 폐기한 사용자의 access token은 JwtFilter가 401로 거절한다.")
+    @Test
+    void filterRejectsRevokedToken() throws Exception {
+        // Given
+        JwtUtils jwtUtils = new JwtUtils(SECRET, ACCESS_EXPIRED_MS, 60_000, 0);
+        String accessToken = jwtUtils.createAccessToken(USERNAME, "ROLE_ADMIN");
+        Thread.sleep(1_100); // iat는 초 단위이고, 폐기한 그 초에 발급된 토큰은 살려 둔다.
+
+        RedisAccessTokenRevocations other = node();
+        node().revoke(USERNAME);
+        other.sync();
+
+        JwtFilter filter = new JwtFilter(jwtUtils, other, new SimpleMeterRegistry());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.addHeader("access", accessToken);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // When
+        filter.doFilter(request, response, chain);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    private RedisAccessTokenRevocations node() {
+        LocalAccessTokenRevocations local = new LocalAccessTokenRevocations(ACCESS_EXPIRED_MS, new SimpleMeterRegistry());
+        return new RedisAccessTokenRevocations(local, redisTemplate, ACCESS_EXPIRED_MS);
+    }
+
+    /**
+     * 구독이 등록될 때까지 start()가 기다린다.
+     */
+    private void listen(RedisAccessTokenRevocations node) {
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(node, new ChannelTopic(RedisAccessTokenRevocations.REVOCATION_CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    /**
+     * 지금 폐기하면 거절되는, 이전 초에 발급된 토큰
+     */
+    private static VerifiedToken issuedBefore(long now) {
+        long issuedAt = LocalAccessTokenRevocations.epochOf(now) - 1_000;
+        return new VerifiedToken("access", USERNAME, "ROLE_ADMIN", issuedAt, issuedAt + ACCESS_EXPIRED_MS);
+    }
+}
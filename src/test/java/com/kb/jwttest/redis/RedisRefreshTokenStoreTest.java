@@ -0,0 +1,149 @@
+package com.kb.jwttest.redis;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisRefreshTokenStoreTest {
+    private static final String FAMILY_ID = "family";
+    private static final String USERNAME = "산드로";
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @DisplayName("grace window 안에서 이미 교체된 토큰으로 다시 교체하면 같은 family의 토큰을 하나 더 발급한다.")
+    @Test
+    void concurrentRotation() {
+        // Given
+        RedisRefreshTokenStore store = new RedisRefreshTokenStore(redisTemplate, 60_000, new SimpleMeterRegistry());
+        long expiration = System.currentTimeMillis() + 60_000;
+        store.save("token-1", FAMILY_ID, USERNAME, expiration);
+        store.rotate("token-1", "token-2", FAMILY_ID, USERNAME, expiration);
+
+        // When
+        RotationResult result = store.rotate("token-1", "token-3", FAMILY_ID, USERNAME, expiration);
+
+        // Then
+        assertThat(result.status()).isEqualTo(RotationResult.Status.CONCURRENT);
+        assertThat(store.exists("token-2")).isTrue();
+        assertThat(store.exists("token-3")).isTrue();
+    }
+
+    @DisplayName("grace window가 지난 뒤 교체된 토큰이 다시 들어오면 family 전체를 폐기하고, 로그아웃한 토큰은 재사용으로 보지 않는다.")
+    @Test
+    void reuseDetected() throws InterruptedException {
+        // Given
+        RedisRefreshTokenStore store = new RedisRefreshTokenStore(redisTemplate, 10, new SimpleMeterRegistry());
+        long expiration = System.currentTimeMillis() + 60_000;
+        store.save("token-1", FAMILY_ID, USERNAME, expiration);
+        store.rotate("token-1", "token-2", FAMILY_ID, USERNAME, expiration);
+        store.save("other-1", "other-family", USERNAME, expiration);
+        store.delete("other-1");
+        Thread.sleep(50);
+
+        // When
+        RotationResult reused = store.rotate("token-1", "token-3", FAMILY_ID, USERNAME, expiration);
+        RotationResult loggedOut = store.rotate("other-1", "other-2", "other-family", USERNAME, expiration);
+
+        // Then
+        assertThat(reused.status()).isEqualTo(RotationResult.Status.REUSE_DETECTED);
+        assertThat(reused.revokedTokenIds()).containsExactly(RefreshTokenIds.of("token-2"));
+        assertThat(store.exists("token-2")).isFalse();
+        assertThat(store.exists("token-3")).isFalse();
+        assertThat(loggedOut).isEqualTo(RotationResult.NOT_FOUND);
+        assertThat(store.findSessions(USERNAME)).isEmpty();
+    }
+
+    @DisplayName("교체한 뒤 로그아웃한 family는 grace window 안에 이전 토큰이 다시 들어와도 새 토큰을 발급하지 않는다.")
+    @Test
+    void replayAfterLogout() {
+        // Given
+        RedisRefreshTokenStore store = new RedisRefreshTokenStore(redisTemplate, 60_000, new SimpleMeterRegistry());
+        long expiration = System.currentTimeMillis() + 60_000;
+        store.save("token-1", FAMILY_ID, USERNAME, expiration);
+        store.rotate("token-1", "token-2", FAMILY_ID, USERNAME, expiration);
+        store.delete("token-2");
+
+        // When
+        RotationResult result = store.rotate("token-1", "token-3", FAMILY_ID, USERNAME, expiration);
+
+        // Then
+        assertThat(result).isEqualTo(RotationResult.NOT_FOUND);
+        assertThat(store.exists("token-3")).isFalse();
+        assertThat(store.findSessions(USERNAME)).isEmpty();
+    }
+
+    @DisplayName("family의 교체 기록은 최근 MAX_ROTATED_TOKENS개만 남는다.")
+    @Test
+    void trimRotated() {
+        // Given
+        RedisRefreshTokenStore store = new RedisRefreshTokenStore(redisTemplate, 60_000, new SimpleMeterRegistry());
+        long expiration = System.currentTimeMillis() + 60_000;
+        store.save("token-0", FAMILY_ID, USERNAME, expiration);
+
+        // When
+        for (int i = 0; i < RefreshTokenStore.MAX_ROTATED_TOKENS + 8; i++)
+            store.rotate("token-" + i, "token-" + (i + 1), FAMILY_ID, USERNAME, expiration);
+
+        // Then
+        // 살아 있는 토큰(t:) 하나와 교체 기록(r:) MAX_ROTATED_TOKENS개
+        assertThat(redisTemplate.opsForHash().size("rt:fam:" + FAMILY_ID)).isEqualTo(RefreshTokenStore.MAX_ROTATED_TOKENS + 1L);
+        assertThat(store.exists("token-" + (RefreshTokenStore.MAX_ROTATED_TOKENS + 8))).isTrue();
+    }
+
+    @DisplayName("이전 구조에만 있는 토큰도 존재 확인을 통과하고, 교체하면 새 구조로 옮겨지며 이전 키는 지워진다.")
+    @Test
+    void legacyFallback() {
+        // Given
+        RedisRefreshTokenStore store = new RedisRefreshTokenStore(redisTemplate, 2_000, true, new SimpleMeterRegistry());
+        long expiration = System.currentTimeMillis() + 60_000;
+        String legacyToken = "legacy.refresh.token";
+        redisTemplate.opsForHash().put("refresh_token:" + legacyToken, "token", legacyToken);
+        redisTemplate.opsForSet().add("refresh_token:token:" + legacyToken, legacyToken);
+        redisTemplate.opsForSet().add("refresh_token", legacyToken);
+        assertThat(store.exists(legacyToken)).isTrue();
+
+        // When
+        RotationResult result = store.rotate(legacyToken, "token-1", FAMILY_ID, USERNAME, expiration);
+
+        // Then
+        assertThat(result).isEqualTo(RotationResult.ROTATED);
+        assertThat(store.exists(legacyToken)).isFalse();
+        assertThat(store.exists("token-1")).isTrue();
+        assertThat(store.findSessions(USERNAME)).hasSize(1);
+        assertThat(redisTemplate.hasKey("refresh_token:token:" + legacyToken)).isFalse();
+        assertThat(redisTemplate.opsForSet().isMember("refresh_token", legacyToken)).isFalse();
+    }
+}
@@ -0,0 +1,94 @@
+package com.kb.jwttest.redis;
+
+import com.kb.jwttest.entity.UserEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisUserDetailsCacheTest {
+    private static final String USERNAME = "산드로";
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redisTemplate;
+    private RedisMessageListenerContainer container;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (container != null)
+            container.destroy();
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @DisplayName("한 노드에서 무효화하면 pub/sub으로 다른 노드의 캐시도 지워져 다음 조회는 DB에서 읽는다.")
+    @Test
+    void broadcast() throws InterruptedException {
+        // Given
+        RedisUserDetailsCache evicting = node();
+        RedisUserDetailsCache listening = node();
+        listen(listening);
+        AtomicInteger loads = new AtomicInteger();
+        listening.get(USERNAME, username -> load(loads, username));
+
+        // When
+        evicting.evict(USERNAME);
+
+        // Then
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (loads.get() < 2 && System.currentTimeMillis() < deadline) {
+            listening.get(USERNAME, username -> load(loads, username));
+            Thread.sleep(10);
+        }
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    private RedisUserDetailsCache node() {
+        return new RedisUserDetailsCache(redisTemplate, new SimpleMeterRegistry(), 100, 60_000);
+    }
+
+    /**
+     * 구독이 등록될 때까지 start()가 기다린다.
+     */
+    private void listen(RedisUserDetailsCache node) {
+        container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(node, new ChannelTopic(RedisUserDetailsCache.INVALIDATION_CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+    }
+
+    private static Optional<UserEntity> load(AtomicInteger loads, String username) {
+        loads.incrementAndGet();
+        return Optional.of(UserEntity.builder().username(username).password("{bcrypt}hash").role("ROLE_USER").build());
+    }
+}
@@ -0,0 +1,57 @@
+package com.kb.jwttest.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveBCryptPasswordEncoderTest {
+
+    @DisplayName("저장된 해시의 cost가 현재 cost보다 낮을 때만 재해시 대상이고, 높은 cost는 그대로 둔다.")
+    @Test
+    void upgradeEncoding() {
+        // Given
+        AdaptiveBCryptPasswordEncoder encoder = new AdaptiveBCryptPasswordEncoder(6);
+
+        // When
+        String lower = new AdaptiveBCryptPasswordEncoder(4).encode("1234");
+        String same = encoder.encode("1234");
+        String higher = new AdaptiveBCryptPasswordEncoder(7).encode("1234");
+
+        // Then
+        assertThat(encoder.upgradeEncoding(lower)).isTrue();
+        assertThat(encoder.upgradeEncoding(same)).isFalse();
+        assertThat(encoder.upgradeEncoding(higher)).isFalse();
+        assertThat(encoder.matches("1234", higher)).isTrue();
+    }
+
+    @DisplayName("검증 시간은 설정된 cost가 아니라 저장된 해시의 cost로 태그를 붙여 남긴다.")
+    @Test
+    void matchesTaggedByStoredStrength() {
+        // Given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AdaptiveBCryptPasswordEncoder encoder = new AdaptiveBCryptPasswordEncoder(6, 5, 7, meterRegistry);
+        String legacy = new AdaptiveBCryptPasswordEncoder(4).encode("1234");
+
+        // When
+        encoder.matches("1234", legacy);
+        encoder.matches("1234", encoder.encode("1234"));
+
+        // Then
+        assertThat(meterRegistry.get("auth.bcrypt").tag("operation", "matches").tag("strength", "4").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("auth.bcrypt").tag("operation", "matches").tag("strength", "6").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("auth.bcrypt").tag("operation", "matches").tag("strength", "7").timer().count()).isZero();
+    }
+
+    @DisplayName("목표 시간 안에서 가능한 cost를 고르되 최소/최대 범위를 벗어나지 않는다.")
+    @Test
+    void calibrated() {
+        // When
+        AdaptiveBCryptPasswordEncoder encoder = AdaptiveBCryptPasswordEncoder.calibrated(1, 4, 6);
+
+        // Then
+        assertThat(encoder.getStrength()).isBetween(4, 6);
+        assertThat(AdaptiveBCryptPasswordEncoder.strengthOf(encoder.encode("1234"))).isEqualTo(encoder.getStrength());
+    }
+}